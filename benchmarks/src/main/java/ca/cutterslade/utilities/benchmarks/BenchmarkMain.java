@@ -0,0 +1,39 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected by the JMH command line arguments, always with the {@link GCProfiler} so every suite
+ * reports its allocation rate alongside its timings. The help and listing options behave as they do for the JMH main
+ * class.
+ */
+public final class BenchmarkMain {
+
+  private BenchmarkMain() {
+    throw new UnsupportedOperationException();
+  }
+
+  public static void main(final String[] args) throws CommandLineOptionException, RunnerException, IOException {
+    final CommandLineOptions options = new CommandLineOptions(args);
+    final Runner runner = new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build());
+    if (options.shouldHelp()) {
+      options.showHelp();
+    }
+    else if (options.shouldList()) {
+      runner.list();
+    }
+    else if (options.shouldListWithParams()) {
+      runner.listWithParams(options);
+    }
+    else {
+      runner.run();
+    }
+  }
+}
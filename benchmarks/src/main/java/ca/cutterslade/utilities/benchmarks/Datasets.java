@@ -0,0 +1,127 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+/**
+ * Generates the benchmark datasets. Every dataset is derived from a {@link Random} with a fixed seed, so each run of a
+ * benchmark with the same parameters works on the same data.
+ */
+final class Datasets {
+
+  static final long SEED = 0x5eed;
+
+  /**
+   * A small text resource packaged with the benchmarks.
+   */
+  static final String READ_RESOURCE = "benchmark.txt";
+
+  private Datasets() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Generates {@code size} keys spread evenly over {@code depth} levels. Every key above the first level references one
+   * key chosen at random from the level below, so the longest reference chain is {@code depth} keys, and
+   * {@code fanOut - 1} keys from the first level; referencing only first level keys beyond the first keeps the
+   * resolved values from growing exponentially with depth.
+   */
+  static ImmutableMap<String, String> properties(final int size, final int depth, final int fanOut) {
+    final Random random = new Random(SEED);
+    final int perLevel = Math.max(1, size / depth);
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      final int level = Math.min(i / perLevel, depth - 1);
+      final StringBuilder value = new StringBuilder("v").append(i);
+      if (level > 0) {
+        value.append(" ${").append(key((level - 1) * perLevel + random.nextInt(perLevel))).append('}');
+        for (int r = 1; r < fanOut; r++) {
+          value.append(" ${").append(key(random.nextInt(perLevel))).append('}');
+        }
+      }
+      builder.put(key(i), value.toString());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Generates {@code size} keys whose values each call the given built in function with {@code arguments} arguments
+   * drawn from {@code distinct} possible literals; fewer distinct literals means more repeated calls.
+   */
+  static ImmutableMap<String, String> functionCalls(final int size, final String function, final int arguments,
+      final int distinct) {
+    final Random random = new Random(SEED);
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      final StringBuilder value = new StringBuilder("${$").append(function).append('(');
+      for (int a = 0; a < arguments; a++) {
+        if (0 != a) {
+          value.append(',');
+        }
+        value.append("'arg").append(random.nextInt(distinct)).append('\'');
+      }
+      builder.put(key(i), value.append(")}").toString());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Generates {@code size} keys whose values each call the built in {@code read} function on the
+   * {@link #READ_RESOURCE} classpath resource, repeated {@code reads} times.
+   */
+  static ImmutableMap<String, String> resourceReads(final int size, final int reads) {
+    final StringBuilder value = new StringBuilder("${$read(");
+    for (int r = 0; r < reads; r++) {
+      if (0 != r) {
+        value.append(',');
+      }
+      value.append('\'').append(READ_RESOURCE).append('\'');
+    }
+    final String call = value.append(")}").toString();
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      builder.put(key(i), call);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Writes a {@code .properties} file of {@code size} entries with values of about {@code valueLength} characters,
+   * including some comments, continuation lines and escapes.
+   */
+  static File propertiesFile(final int size, final int valueLength) throws IOException {
+    final Random random = new Random(SEED);
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      if (0 == i % 100) {
+        text.append("# section ").append(i / 100).append('\n');
+      }
+      text.append(key(i)).append(" = ");
+      for (int c = 0; c < valueLength; c++) {
+        if (0 == random.nextInt(50)) {
+          text.append("\\\n    ");
+        }
+        else if (0 == random.nextInt(50)) {
+          text.append("\\u00e9");
+        }
+        else {
+          text.append((char) ('a' + random.nextInt(26)));
+        }
+      }
+      text.append('\n');
+    }
+    final File file = File.createTempFile("benchmark", ".properties");
+    file.deleteOnExit();
+    Files.write(text, file, Charsets.ISO_8859_1);
+    return file;
+  }
+
+  static String key(final int index) {
+    return "key." + index;
+  }
+}
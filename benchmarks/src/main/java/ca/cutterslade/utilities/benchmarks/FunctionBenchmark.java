@@ -0,0 +1,55 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.cutterslade.utilities.BuiltinFunctions;
+import ca.cutterslade.utilities.ComputationCache;
+import ca.cutterslade.utilities.PropertiesResolver;
+
+/**
+ * Resolves maps whose values call {@link BuiltinFunctions#ECHO}. {@code distinct} controls how many different argument
+ * lists there are, and so how often {@link ComputationCache} can answer a call without computing it.
+ * {@link BuiltinFunctions#READ} is measured by {@link ReadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionBenchmark {
+
+  @Param({ "1000" })
+  private int size;
+
+  @Param({ "1", "3" })
+  private int arguments;
+
+  @Param({ "10", "1000" })
+  private int distinct;
+
+  private Map<String, String> echo;
+
+  @Setup
+  public void generate() {
+    echo = Datasets.functionCalls(size, "echo", arguments, distinct);
+  }
+
+  @Benchmark
+  public Map<String, String> echo() {
+    return new PropertiesResolver(echo).getResolved();
+  }
+}
@@ -0,0 +1,63 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.cutterslade.utilities.PropertiesUtils;
+
+/**
+ * Loads generated {@code .properties} files with {@link PropertiesUtils#loadProperties(URL)}. The larger files are
+ * above the size at which the loader memory maps them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoaderBenchmark {
+
+  @Param({ "1000", "100000" })
+  private int size;
+
+  @Param({ "20", "200" })
+  private int valueLength;
+
+  private File file;
+
+  private URL resource;
+
+  @Setup
+  public void generate() throws IOException {
+    file = Datasets.propertiesFile(size, valueLength);
+    resource = file.toURI().toURL();
+  }
+
+  @TearDown
+  public void delete() {
+    if (!file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+
+  @Benchmark
+  public Map<String, String> loadProperties() throws IOException {
+    return PropertiesUtils.loadProperties(resource);
+  }
+}
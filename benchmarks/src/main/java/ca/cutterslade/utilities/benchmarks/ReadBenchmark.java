@@ -0,0 +1,53 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.cutterslade.utilities.BuiltinFunctions;
+import ca.cutterslade.utilities.PropertiesResolver;
+import ca.cutterslade.utilities.ResourceCache;
+
+/**
+ * Resolves maps whose values call {@link BuiltinFunctions#READ} on a resource packaged with the benchmarks,
+ * {@code reads} times per call. {@code read} is looked up by name through the class path on every call and is not
+ * pure, so after the first read each resource is answered by the shared {@link ResourceCache}; this measures the cost
+ * of those lookups and cache hits rather than of reading the resource.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+
+  @Param({ "1000" })
+  private int size;
+
+  @Param({ "1", "3" })
+  private int reads;
+
+  private Map<String, String> read;
+
+  @Setup
+  public void generate() {
+    read = Datasets.resourceReads(size, reads);
+  }
+
+  @Benchmark
+  public Map<String, String> read() {
+    return new PropertiesResolver(read).getResolved();
+  }
+}
@@ -0,0 +1,53 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.cutterslade.utilities.PropertiesResolver;
+
+/**
+ * Resolves generated property maps of varying size, reference depth and fan-out with
+ * {@link PropertiesResolver#getResolved()}. A new resolver is created for every invocation, since a resolver keeps the
+ * values it has resolved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolverBenchmark {
+
+  @Param({ "100", "1000", "10000" })
+  private int size;
+
+  @Param({ "1", "10", "100" })
+  private int depth;
+
+  @Param({ "1", "4" })
+  private int fanOut;
+
+  private Map<String, String> properties;
+
+  @Setup
+  public void generate() {
+    properties = Datasets.properties(size, depth, fanOut);
+  }
+
+  @Benchmark
+  public Map<String, String> getResolved() {
+    return new PropertiesResolver(properties).getResolved();
+  }
+}
@@ -0,0 +1,69 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.cutterslade.utilities.PrimitiveResultSetIterator;
+import ca.cutterslade.utilities.ResultSetTransformer;
+
+/**
+ * Iterates a synthetic {@link java.sql.ResultSet} of {@code rows} rows, boxed through {@link ResultSetTransformer} and
+ * unboxed through {@link PrimitiveResultSetIterator}. The result set is a {@link SyntheticResultSet} created once per
+ * trial, so its own cost is small and included equally in every benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultSetTransformerBenchmark {
+
+  @Param({ "10000" })
+  private int rows;
+
+  private SyntheticResultSet resultSet;
+
+  @Setup
+  public void setUp() {
+    resultSet = new SyntheticResultSet(rows);
+  }
+
+  @Benchmark
+  public void integerTransformer(final Blackhole blackhole) {
+    final ResultSetTransformer<Integer> transformer =
+        new ResultSetTransformer<Integer>(resultSet.rewind(), ResultSetTransformer.INTEGER_TRANSFORMER);
+    while (transformer.hasNext()) {
+      blackhole.consume(transformer.next());
+    }
+  }
+
+  @Benchmark
+  public void stringTransformer(final Blackhole blackhole) {
+    final ResultSetTransformer<String> transformer =
+        new ResultSetTransformer<String>(resultSet.rewind(), ResultSetTransformer.STRING_TRANSFORMER);
+    while (transformer.hasNext()) {
+      blackhole.consume(transformer.next());
+    }
+  }
+
+  @Benchmark
+  public void primitiveIterator(final Blackhole blackhole) {
+    final PrimitiveResultSetIterator iterator = new PrimitiveResultSetIterator(resultSet.rewind());
+    while (iterator.hasNext()) {
+      blackhole.consume(iterator.nextInt());
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+
+import ca.cutterslade.utilities.ResultSetTransformer;
+import ca.cutterslade.utilities.RowMappers;
+
+/**
+ * Maps the rows of a {@link SyntheticResultSet} to beans with a mapper compiled by {@link RowMappers} and with the
+ * kind of hand written mapper it replaces, which reads each column with {@link ResultSet#getObject(String)}, looking it
+ * up by label and boxing its value on every row. The synthetic result set finds columns by label far more cheaply than
+ * most drivers, so the difference here is a lower bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappersBenchmark {
+
+  public static final class Row {
+
+    private long id;
+
+    private String name;
+
+    private double score;
+
+    public void setId(final long id) {
+      this.id = id;
+    }
+
+    public void setName(final String name) {
+      this.name = name;
+    }
+
+    public void setScore(final double score) {
+      this.score = score;
+    }
+  }
+
+  private static final Function<ResultSet, Row> BY_LABEL = new Function<ResultSet, Row>() {
+
+    @Override
+    public Row apply(final ResultSet input) {
+      try {
+        final Row row = new Row();
+        row.setId(((Number) input.getObject("id")).longValue());
+        row.setName((String) input.getObject("name"));
+        row.setScore(((Number) input.getObject("score")).doubleValue());
+        return row;
+      }
+      catch (final SQLException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  };
+
+  @Param({ "10000" })
+  private int rows;
+
+  private SyntheticResultSet resultSet;
+
+  private Function<ResultSet, Row> compiled;
+
+  @Setup
+  public void setUp() throws SQLException {
+    resultSet = new SyntheticResultSet(rows);
+    compiled = RowMappers.forClass(resultSet, Row.class);
+  }
+
+  @Benchmark
+  public void compiled(final Blackhole blackhole) {
+    map(compiled, blackhole);
+  }
+
+  @Benchmark
+  public void byLabel(final Blackhole blackhole) {
+    map(BY_LABEL, blackhole);
+  }
+
+  private void map(final Function<ResultSet, Row> mapper, final Blackhole blackhole) {
+    final ResultSetTransformer<Row> transformer = new ResultSetTransformer<Row>(resultSet.rewind(), mapper);
+    while (transformer.hasNext()) {
+      blackhole.consume(transformer.next());
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Random;
+
+/**
+ * A forward only {@link java.sql.ResultSet} of generated rows with an {@code INTEGER} column {@code id}, a
+ * {@code VARCHAR} column {@code name} and a {@code DOUBLE} column {@code score}. Every value is computed or generated
+ * when the result set is created, so reading it allocates nothing beyond the boxing {@code getObject} implies and its
+ * own cost stays small and equal across benchmarks. Columns can also be read by label, as hand written mappers do.
+ * {@link #rewind()} makes it ready to be read again, so a benchmark can create it once in its setup.
+ */
+final class SyntheticResultSet extends UnsupportedResultSet {
+
+  static final int ID = 1;
+
+  static final int NAME = 2;
+
+  static final int SCORE = 3;
+
+  private static final int NAMES = 1024;
+
+  private final int rows;
+
+  private final String[] ids;
+
+  private final String[] names = new String[NAMES];
+
+  private final ResultSetMetaData metaData = new MetaData();
+
+  private int row;
+
+  private boolean closed;
+
+  SyntheticResultSet(final int rows) {
+    this.rows = rows;
+    ids = new String[rows + 1];
+    for (int i = 1; i <= rows; i++) {
+      ids[i] = Integer.toString(i);
+    }
+    final Random random = new Random(Datasets.SEED);
+    for (int i = 0; i < NAMES; i++) {
+      names[i] = Long.toString(random.nextLong(), Character.MAX_RADIX);
+    }
+  }
+
+  SyntheticResultSet rewind() {
+    row = 0;
+    closed = false;
+    return this;
+  }
+
+  private void check(final int column, final int expected) throws SQLException {
+    if (closed || 0 == row || row > rows) {
+      throw new SQLException("No current row");
+    }
+    if (column != expected) {
+      throw unsupported();
+    }
+  }
+
+  @Override
+  public boolean next() {
+    if (!closed && row <= rows) {
+      row++;
+    }
+    return !closed && row <= rows;
+  }
+
+  @Override
+  public int getInt(final int column) throws SQLException {
+    check(column, ID);
+    return row;
+  }
+
+  @Override
+  public long getLong(final int column) throws SQLException {
+    check(column, ID);
+    return row;
+  }
+
+  @Override
+  public double getDouble(final int column) throws SQLException {
+    check(column, SCORE);
+    return row * 0.25;
+  }
+
+  @Override
+  public String getString(final int column) throws SQLException {
+    check(column, ID == column ? ID : NAME);
+    return ID == column ? ids[row] : names[row & NAMES - 1];
+  }
+
+  @Override
+  public int findColumn(final String label) throws SQLException {
+    int column = 0;
+    for (int i = 0; 0 == column && i < MetaData.LABELS.length; i++) {
+      if (MetaData.LABELS[i].equalsIgnoreCase(label)) {
+        column = i + 1;
+      }
+    }
+    if (0 == column) {
+      throw new SQLException("No column labelled " + label);
+    }
+    return column;
+  }
+
+  @Override
+  public long getLong(final String label) throws SQLException {
+    return getLong(findColumn(label));
+  }
+
+  @Override
+  public double getDouble(final String label) throws SQLException {
+    return getDouble(findColumn(label));
+  }
+
+  @Override
+  public String getString(final String label) throws SQLException {
+    return getString(findColumn(label));
+  }
+
+  @Override
+  public Object getObject(final int column) throws SQLException {
+    final Object value;
+    if (SCORE == column) {
+      value = getDouble(column);
+    }
+    else if (ID == column) {
+      value = getInt(column);
+    }
+    else {
+      value = getString(column);
+    }
+    return value;
+  }
+
+  @Override
+  public Object getObject(final String label) throws SQLException {
+    return getObject(findColumn(label));
+  }
+
+  @Override
+  public boolean wasNull() {
+    return false;
+  }
+
+  @Override
+  public ResultSetMetaData getMetaData() {
+    return metaData;
+  }
+
+  @Override
+  public void setFetchSize(final int rows) {
+    // the rows are already in memory
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  private static final class MetaData extends UnsupportedResultSetMetaData {
+
+    private static final String[] LABELS = { "id", "name", "score" };
+
+    private static final int[] TYPES = { Types.INTEGER, Types.VARCHAR, Types.DOUBLE };
+
+    @Override
+    public int getColumnCount() {
+      return LABELS.length;
+    }
+
+    @Override
+    public String getColumnLabel(final int column) {
+      return LABELS[column - 1];
+    }
+
+    @Override
+    public String getColumnName(final int column) {
+      return LABELS[column - 1];
+    }
+
+    @Override
+    public int getColumnType(final int column) {
+      return TYPES[column - 1];
+    }
+  }
+}
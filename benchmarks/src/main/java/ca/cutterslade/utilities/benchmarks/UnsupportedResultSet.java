@@ -0,0 +1,990 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * A {@link ResultSet} on which every method throws {@link SQLFeatureNotSupportedException}, for benchmark result sets
+ * to override only the methods they support.
+ */
+abstract class UnsupportedResultSet implements ResultSet {
+
+  static SQLException unsupported() {
+    return new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public boolean absolute(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void afterLast() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void beforeFirst() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void cancelRowUpdates() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void close() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void deleteRow() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int findColumn(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean first() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Array getArray(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Array getArray(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public InputStream getAsciiStream(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public InputStream getAsciiStream(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(final String label, final int value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(final int column, final int value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public InputStream getBinaryStream(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public InputStream getBinaryStream(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Blob getBlob(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Blob getBlob(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean getBoolean(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean getBoolean(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public byte getByte(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public byte getByte(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public byte[] getBytes(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public byte[] getBytes(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Reader getCharacterStream(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Reader getCharacterStream(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Clob getClob(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Clob getClob(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getConcurrency() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public String getCursorName() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Date getDate(final String label, final Calendar calendar) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Date getDate(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Date getDate(final int column, final Calendar calendar) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Date getDate(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public double getDouble(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public double getDouble(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getFetchDirection() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getFetchSize() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public float getFloat(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public float getFloat(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getInt(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getInt(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public long getLong(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public long getLong(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public ResultSetMetaData getMetaData() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Reader getNCharacterStream(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Reader getNCharacterStream(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public NClob getNClob(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public NClob getNClob(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public String getNString(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public String getNString(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public <T> T getObject(final String label, final Class<T> type) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Object getObject(final String label, final Map<String, Class<?>> map) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Object getObject(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public <T> T getObject(final int column, final Class<T> type) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Object getObject(final int column, final Map<String, Class<?>> map) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Object getObject(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Ref getRef(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Ref getRef(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getRow() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public RowId getRowId(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public RowId getRowId(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public SQLXML getSQLXML(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public SQLXML getSQLXML(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public short getShort(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public short getShort(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Statement getStatement() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public String getString(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public String getString(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Time getTime(final String label, final Calendar calendar) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Time getTime(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Time getTime(final int column, final Calendar calendar) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Time getTime(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Timestamp getTimestamp(final String label, final Calendar calendar) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Timestamp getTimestamp(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Timestamp getTimestamp(final int column, final Calendar calendar) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public Timestamp getTimestamp(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public int getType() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public URL getURL(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public URL getURL(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public InputStream getUnicodeStream(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public InputStream getUnicodeStream(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void insertRow() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean isAfterLast() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean isBeforeFirst() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean isFirst() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean isLast() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean isWrapperFor(final Class<?> type) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean last() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void moveToCurrentRow() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void moveToInsertRow() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean next() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean previous() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void refreshRow() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean relative(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean rowDeleted() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean rowInserted() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean rowUpdated() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void setFetchDirection(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void setFetchSize(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public <T> T unwrap(final Class<T> type) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateArray(final String label, final Array value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateArray(final int column, final Array value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateAsciiStream(final String label, final InputStream value, final int length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateAsciiStream(final String label, final InputStream value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateAsciiStream(final String label, final InputStream value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateAsciiStream(final int column, final InputStream value, final int length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateAsciiStream(final int column, final InputStream value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateAsciiStream(final int column, final InputStream value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBigDecimal(final String label, final BigDecimal value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBigDecimal(final int column, final BigDecimal value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBinaryStream(final String label, final InputStream value, final int length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBinaryStream(final String label, final InputStream value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBinaryStream(final String label, final InputStream value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBinaryStream(final int column, final InputStream value, final int length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBinaryStream(final int column, final InputStream value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBinaryStream(final int column, final InputStream value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBlob(final String label, final InputStream value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBlob(final String label, final InputStream value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBlob(final String label, final Blob value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBlob(final int column, final InputStream value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBlob(final int column, final InputStream value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBlob(final int column, final Blob value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBoolean(final String label, final boolean value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBoolean(final int column, final boolean value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateByte(final String label, final byte value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateByte(final int column, final byte value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBytes(final String label, final byte[] value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateBytes(final int column, final byte[] value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateCharacterStream(final String label, final Reader value, final int length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateCharacterStream(final String label, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateCharacterStream(final String label, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateCharacterStream(final int column, final Reader value, final int length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateCharacterStream(final int column, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateCharacterStream(final int column, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateClob(final String label, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateClob(final String label, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateClob(final String label, final Clob value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateClob(final int column, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateClob(final int column, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateClob(final int column, final Clob value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateDate(final String label, final Date value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateDate(final int column, final Date value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateDouble(final String label, final double value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateDouble(final int column, final double value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateFloat(final String label, final float value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateFloat(final int column, final float value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateInt(final String label, final int value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateInt(final int column, final int value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateLong(final String label, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateLong(final int column, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNCharacterStream(final String label, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNCharacterStream(final String label, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNCharacterStream(final int column, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNCharacterStream(final int column, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNClob(final String label, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNClob(final String label, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNClob(final String label, final NClob value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNClob(final int column, final Reader value, final long length) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNClob(final int column, final Reader value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNClob(final int column, final NClob value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNString(final String label, final String value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNString(final int column, final String value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNull(final String label) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateNull(final int column) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateObject(final String label, final Object value, final int scaleOrLength) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateObject(final String label, final Object value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateObject(final int column, final Object value, final int scaleOrLength) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateObject(final int column, final Object value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateRef(final String label, final Ref value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateRef(final int column, final Ref value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateRow() throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateRowId(final String label, final RowId value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateRowId(final int column, final RowId value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateSQLXML(final String label, final SQLXML value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateSQLXML(final int column, final SQLXML value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateShort(final String label, final short value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateShort(final int column, final short value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateString(final String label, final String value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateString(final int column, final String value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateTime(final String label, final Time value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateTime(final int column, final Time value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateTimestamp(final String label, final Timestamp value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public void updateTimestamp(final int column, final Timestamp value) throws SQLException {
+    throw unsupported();
+  }
+
+  @Override
+  public boolean wasNull() throws SQLException {
+    throw unsupported();
+  }
+}
@@ -0,0 +1,126 @@
+package ca.cutterslade.utilities.benchmarks;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * A {@link ResultSetMetaData} on which every method throws {@link java.sql.SQLFeatureNotSupportedException}, for
+ * benchmark result sets to override only the methods they support.
+ */
+abstract class UnsupportedResultSetMetaData implements ResultSetMetaData {
+
+  @Override
+  public String getCatalogName(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public String getColumnClassName(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public int getColumnCount() throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public int getColumnDisplaySize(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public String getColumnLabel(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public String getColumnName(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public int getColumnType(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public String getColumnTypeName(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public int getPrecision(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public int getScale(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public String getSchemaName(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public String getTableName(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isAutoIncrement(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isCaseSensitive(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isCurrency(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isDefinitelyWritable(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public int isNullable(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isReadOnly(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isSearchable(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isSigned(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isWrapperFor(final Class<?> type) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public boolean isWritable(final int column) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+
+  @Override
+  public <T> T unwrap(final Class<T> type) throws SQLException {
+    throw UnsupportedResultSet.unsupported();
+  }
+}
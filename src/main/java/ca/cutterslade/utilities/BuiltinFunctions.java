@@ -2,12 +2,12 @@ package ca.cutterslade.utilities;
 
 import java.io.IOException;
 
-import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.collect.ComputationException;
 import com.google.common.io.Resources;
 
 public enum BuiltinFunctions implements Function<Iterable<String>, String> {
+  @PureFunction
   ECHO {
 
     @Override
@@ -29,6 +29,9 @@ public enum BuiltinFunctions implements Function<Iterable<String>, String> {
       return result;
     }
   },
+  /**
+   * Not {@link PureFunction pure}: resources may change between calls, which {@link ResourceCache} accounts for.
+   */
   READ {
 
     @Override
@@ -41,7 +44,7 @@ public enum BuiltinFunctions implements Function<Iterable<String>, String> {
         final StringBuilder builder = new StringBuilder();
         for (final String resource : input) {
           try {
-            builder.append(Resources.toString(Resources.getResource(resource), Charsets.UTF_8));
+            builder.append(ResourceCache.shared().read(Resources.getResource(resource)));
           }
           catch (final IOException e) {
             throw new ComputationException(e);
@@ -0,0 +1,126 @@
+package ca.cutterslade.utilities;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+
+/**
+ * Transforms the rows of a {@link ResultSet} as {@link ResultSetTransformer} does, but hands them out in chunks of up
+ * to a fixed number of rows, for consumers which write in batches. The chunk size is also given to the result set as
+ * its fetch size.
+ * <p>
+ * The chunks are unmodifiable lists, which may contain {@code null}s if the transformer produces them. A consumer
+ * which has finished with a chunk may pass it to {@link #recycle(List)}, and its storage is then reused for a later
+ * chunk; a recycled chunk must not be used again.
+ */
+public class ChunkedResultSetTransformer<T> implements Iterator<List<T>> {
+
+  private static final Logger log = LoggerFactory.getLogger(ChunkedResultSetTransformer.class);
+
+  private final ResultSetTransformer<T> rows;
+
+  private final int chunkSize;
+
+  private final Deque<Chunk<T>> recycled = new ArrayDeque<Chunk<T>>();
+
+  public ChunkedResultSetTransformer(@Nonnull final ResultSet result, @Nonnull final Function<ResultSet, T> transformer,
+      final int chunkSize) {
+    Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive");
+    this.rows = new ResultSetTransformer<T>(result, transformer);
+    this.chunkSize = chunkSize;
+    try {
+      result.setFetchSize(chunkSize);
+    }
+    catch (final SQLException e) {
+      log.debug("Fetch size hint of {} not accepted", chunkSize, e);
+    }
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return rows.hasNext();
+  }
+
+  /**
+   * Returns the next chunk, which holds {@link #getChunkSize()} rows unless the rows are exhausted.
+   */
+  @Override
+  public List<T> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Chunk<T> chunk = recycled.isEmpty() ? new Chunk<T>(this, chunkSize) : recycled.pop();
+    chunk.size = 0;
+    while (chunk.size < chunkSize && rows.hasNext()) {
+      chunk.elements[chunk.size++] = rows.next();
+    }
+    return chunk;
+  }
+
+  /**
+   * Returns a chunk produced by this transformer for reuse; the caller must not use it afterwards.
+   */
+  @SuppressWarnings("unchecked")
+  public void recycle(@Nonnull final List<T> chunk) {
+    Preconditions.checkArgument(chunk instanceof Chunk && this == ((Chunk<?>) chunk).owner,
+        "Chunk was not produced by this transformer");
+    final Chunk<T> recycledChunk = (Chunk<T>) chunk;
+    for (final Chunk<T> other : recycled) {
+      Preconditions.checkArgument(other != recycledChunk, "Chunk has already been recycled");
+    }
+    for (int i = 0; i < recycledChunk.size; i++) {
+      recycledChunk.elements[i] = null;
+    }
+    recycledChunk.size = 0;
+    recycled.push(recycledChunk);
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("remove is not supported");
+  }
+
+  private static final class Chunk<T> extends AbstractList<T> implements RandomAccess {
+
+    final Object owner;
+
+    final Object[] elements;
+
+    int size;
+
+    Chunk(@Nonnull final Object owner, final int capacity) {
+      this.owner = owner;
+      this.elements = new Object[capacity];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(final int index) {
+      Preconditions.checkElementIndex(index, size);
+      return (T) elements[index];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package ca.cutterslade.utilities;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Evaluates computed placeholders, remembering the results of {@link PureFunction pure} functions by function name and
+ * arguments so that repeated calls are not evaluated again. Functions which are not pure are called every time.
+ * <p>
+ * Each resolver uses its own unbounded cache unless given one, so results are shared within a resolution; a bounded
+ * cache may be passed to several resolvers to share results between them.
+ */
+public final class ComputationCache {
+
+  private final Cache<Invocation, Optional<String>> results;
+
+  private final ConcurrentMap<String, Counts> counts = Maps.newConcurrentMap();
+
+  /**
+   * Creates a cache holding the results of any number of calls, for use within a single resolution.
+   */
+  public ComputationCache() {
+    this.results = CacheBuilder.newBuilder().build();
+  }
+
+  /**
+   * Creates a cache holding the results of at most the given number of calls, evicting the least recently used.
+   */
+  public ComputationCache(final long maximumSize) {
+    this.results = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  @Nullable
+  public String compute(@Nonnull final String function, @Nonnull final ImmutableList<String> arguments) {
+    final PropertiesResolver.ComputeMethod method = PropertiesResolver.getComputeMethod(function, arguments.size());
+    final String result;
+    if (method.isPure()) {
+      final Invocation invocation = new Invocation(function, arguments);
+      final Optional<String> cached = results.getIfPresent(invocation);
+      final Counts functionCounts = counts(function);
+      if (null == cached) {
+        functionCounts.misses.incrementAndGet();
+        result = method.apply(arguments);
+        results.put(invocation, Optional.fromNullable(result));
+      }
+      else {
+        functionCounts.hits.incrementAndGet();
+        result = cached.orNull();
+      }
+    }
+    else {
+      counts(function).misses.incrementAndGet();
+      result = method.apply(arguments);
+    }
+    return result;
+  }
+
+  /**
+   * The number of calls of each function answered from the cache (hits) and evaluated (misses), by the name used in
+   * the placeholders. Every call of a function which is not pure is a miss.
+   */
+  public ImmutableMap<String, CacheStats> getStats() {
+    final ImmutableMap.Builder<String, CacheStats> builder = ImmutableMap.builder();
+    for (final Map.Entry<String, Counts> entry : counts.entrySet()) {
+      builder.put(entry.getKey(),
+          new CacheStats(entry.getValue().hits.get(), entry.getValue().misses.get(), 0, 0, 0, 0));
+    }
+    return builder.build();
+  }
+
+  public long size() {
+    return results.size();
+  }
+
+  public void clear() {
+    results.invalidateAll();
+  }
+
+  private Counts counts(@Nonnull final String function) {
+    Counts functionCounts = counts.get(function);
+    if (null == functionCounts) {
+      functionCounts = new Counts();
+      final Counts existing = counts.putIfAbsent(function, functionCounts);
+      if (null != existing) {
+        functionCounts = existing;
+      }
+    }
+    return functionCounts;
+  }
+
+  private static final class Counts {
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+  }
+
+  private static final class Invocation {
+
+    private final String function;
+
+    private final ImmutableList<String> arguments;
+
+    Invocation(@Nonnull final String function, @Nonnull final ImmutableList<String> arguments) {
+      this.function = function;
+      this.arguments = arguments;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      final boolean equal;
+      if (this == obj) {
+        equal = true;
+      }
+      else if (obj instanceof Invocation) {
+        final Invocation other = (Invocation) obj;
+        equal = function.equals(other.function) && arguments.equals(other.arguments);
+      }
+      else {
+        equal = false;
+      }
+      return equal;
+    }
+
+    @Override
+    public int hashCode() {
+      return function.hashCode() * 31 + arguments.hashCode();
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package ca.cutterslade.utilities;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * A counterpart to {@link PropertiesResolver} which may be shared between threads. Each key is evaluated at most
+ * once; once a key has been resolved, lookups of it are plain reads of a concurrent map.
+ * <p>
+ * The calling thread walks the keys a key depends on with {@link DependencyOrder}, evaluating each only after the keys
+ * it references, so a thread only ever waits for a key whose own references are resolved. Circular references are
+ * found by the walk, using state local to the calling thread, before any key on the cycle is evaluated, so they are
+ * reported to the caller rather than leaving two threads waiting on each other.
+ * <p>
+ * A failure to evaluate a key is thrown to the threads waiting for that evaluation, but is not remembered: the next
+ * lookup of the key evaluates it again, so a transient failure, such as a function reading a resource which is briefly
+ * unavailable, does not fail the key for the life of the resolver.
+ */
+public class ConcurrentPropertiesResolver {
+
+  private final Map<String, String> source;
+
+  private final ConcurrentMap<String, String> resolved = Maps.newConcurrentMap();
+
+  private final ConcurrentMap<String, FutureTask<String>> evaluating = Maps.newConcurrentMap();
+
+  private final ConcurrentMap<String, PropertyTemplate> templates = Maps.newConcurrentMap();
+
+  private final AtomicInteger evaluatedCount = new AtomicInteger();
+
+  private final ComputationCache computations;
+
+  private final PropertyTemplate.Context context = new PropertyTemplate.Context() {
+
+    @Override
+    public String getValue(final String key) {
+      return ConcurrentPropertiesResolver.this.getValue(key);
+    }
+
+    @Override
+    public String compute(final String function, final ImmutableList<String> arguments) {
+      return computations.compute(function, arguments);
+    }
+  };
+
+  private final DependencyOrder.Graph graph = new DependencyOrder.Graph() {
+
+    @Override
+    public PropertyTemplate getTemplate(final String key) {
+      return resolved.containsKey(key) || !source.containsKey(key) ? null
+          : ConcurrentPropertiesResolver.this.getTemplate(key);
+    }
+
+    @Override
+    public void visit(final String key, final PropertyTemplate template) {
+      getValue(key);
+    }
+  };
+
+  public ConcurrentPropertiesResolver(@Nonnull final Map<String, String> properties) {
+    this(properties, new ComputationCache());
+  }
+
+  /**
+   * @param computations
+   *          the cache of pure function results to use, which may be shared with other resolvers
+   */
+  public ConcurrentPropertiesResolver(@Nonnull final Map<String, String> properties,
+      @Nonnull final ComputationCache computations) {
+    this.source = LayeredProperties.copyOf(properties);
+    this.computations = Preconditions.checkNotNull(computations);
+  }
+
+  public ConcurrentPropertiesResolver(@Nonnull final Iterable<? extends Map<String, String>> sources) {
+    this(LayeredProperties.of(sources), new ComputationCache());
+  }
+
+  public ImmutableMap<String, String> getResolved() {
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (final String key : source.keySet()) {
+      builder.put(key, resolve(key));
+    }
+    return builder.build();
+  }
+
+  @Nullable
+  public String resolve(@Nonnull final String key) {
+    String value = resolved.get(Preconditions.checkNotNull(key));
+    if (null == value && source.containsKey(key)) {
+      DependencyOrder.visit(key, graph);
+      value = getValue(key);
+    }
+    return value;
+  }
+
+  public ImmutableMap<String, String> resolveAll(@Nonnull final Iterable<String> keys) {
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (final String key : ImmutableSet.copyOf(keys)) {
+      final String value = resolve(key);
+      if (null != value) {
+        builder.put(key, value);
+      }
+    }
+    return builder.build();
+  }
+
+  public int getEvaluatedCount() {
+    return evaluatedCount.get();
+  }
+
+  public ComputationCache getComputations() {
+    return computations;
+  }
+
+  private PropertyTemplate getTemplate(@Nonnull final String key) {
+    PropertyTemplate template = templates.get(key);
+    if (null == template) {
+      template = PropertyTemplate.compile(source.get(key));
+      final PropertyTemplate existing = templates.putIfAbsent(key, template);
+      if (null != existing) {
+        template = existing;
+      }
+    }
+    return template;
+  }
+
+  @Nullable
+  private String getValue(@Nonnull final String key) {
+    String value = resolved.get(key);
+    if (null == value && source.containsKey(key)) {
+      final FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+
+        @Override
+        public String call() {
+          String result = resolved.get(key);
+          if (null == result) {
+            evaluatedCount.incrementAndGet();
+            result = getTemplate(key).resolve(context);
+            resolved.put(key, result);
+          }
+          return result;
+        }
+      });
+      FutureTask<String> existing = evaluating.putIfAbsent(key, task);
+      if (null == existing) {
+        existing = task;
+        task.run();
+      }
+      try {
+        value = Uninterruptibles.getUninterruptibly(existing);
+      }
+      catch (final ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+      finally {
+        if (existing == task) {
+          evaluating.remove(key, task);
+        }
+      }
+    }
+    return value;
+  }
+
+}
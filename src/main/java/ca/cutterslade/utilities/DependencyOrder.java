@@ -0,0 +1,93 @@
+package ca.cutterslade.utilities;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Visits a key and the keys it references, directly or through function arguments, so that every key is visited after
+ * the keys it references. The walk is driven by an explicit stack rather than by recursion, so reference chains of any
+ * length can be followed on a thread with an ordinary stack size, using memory proportional to the length of the
+ * chain.
+ */
+final class DependencyOrder {
+
+  interface Graph {
+
+    /**
+     * Returns the template of the given key, or {@code null} if the key is not to be visited because it is undefined
+     * or has already been visited.
+     */
+    @Nullable
+    PropertyTemplate getTemplate(@Nonnull String key);
+
+    void visit(@Nonnull String key, @Nonnull PropertyTemplate template);
+  }
+
+  private DependencyOrder() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @throws IllegalStateException
+   *           if a circular reference is found, naming every key in the cycle
+   */
+  static void visit(@Nonnull final String key, @Nonnull final Graph graph) {
+    final PropertyTemplate root = graph.getTemplate(key);
+    if (null != root) {
+      final Deque<Frame> stack = new ArrayDeque<Frame>();
+      final Set<String> path = Sets.newLinkedHashSet();
+      stack.push(new Frame(key, root));
+      path.add(key);
+      while (!stack.isEmpty()) {
+        final Frame frame = stack.peek();
+        if (frame.references.hasNext()) {
+          final String reference = frame.references.next();
+          final PropertyTemplate template = graph.getTemplate(reference);
+          if (null != template) {
+            if (!path.add(reference)) {
+              throw circularReference(reference, path);
+            }
+            stack.push(new Frame(reference, template));
+          }
+        }
+        else {
+          stack.pop();
+          path.remove(frame.key);
+          graph.visit(frame.key, frame.template);
+        }
+      }
+    }
+  }
+
+  private static IllegalStateException circularReference(@Nonnull final String key, @Nonnull final Set<String> path) {
+    final List<String> cycle = Lists.newArrayList(path);
+    cycle.subList(0, cycle.indexOf(key)).clear();
+    cycle.add(key);
+    return new IllegalStateException("Circular reference found on key " + key + ": " + Joiner.on(" -> ").join(cycle));
+  }
+
+  private static final class Frame {
+
+    final String key;
+
+    final PropertyTemplate template;
+
+    final Iterator<String> references;
+
+    Frame(@Nonnull final String key, @Nonnull final PropertyTemplate template) {
+      this.key = key;
+      this.template = template;
+      this.references = template.getReferences().iterator();
+    }
+  }
+}
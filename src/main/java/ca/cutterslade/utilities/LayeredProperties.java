@@ -0,0 +1,223 @@
+package ca.cutterslade.utilities;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * A view of several property maps, where a key takes its value from the first layer which defines it. Building a view
+ * costs one step per layer, the layers are never copied into a single map, and the same layers may be shared by any
+ * number of views. Layers are immutable except for the live {@code sys.} and {@code env.} views returned by
+ * {@link PropertiesUtils#systemPropertiesView()} and {@link PropertiesUtils#environmentPropertiesView()}, which are
+ * kept as they are so that the view reflects changes to them.
+ * <p>
+ * A view created by {@link #withLookupCache()} remembers which layer each looked up key was found in, so that repeated
+ * lookups of a key defined only in a low priority layer do not probe every layer above it. Keys which are not defined
+ * are not remembered, so the cache holds at most one entry per defined key. A remembered layer which no longer defines
+ * the key is searched past, but a key later added to a live layer above the remembered one is not noticed.
+ */
+public final class LayeredProperties extends AbstractMap<String, String> {
+
+  private static final int UNDEFINED = -1;
+
+  private final ImmutableList<Map<String, String>> layers;
+
+  /**
+   * Whether any layer is a live view, whose size may change.
+   */
+  private final boolean live;
+
+  private final ConcurrentMap<Object, Integer> lookupCache;
+
+  private volatile EntrySet entrySet;
+
+  private LayeredProperties(@Nonnull final ImmutableList<Map<String, String>> layers,
+      @Nullable final ConcurrentMap<Object, Integer> lookupCache) {
+    this.layers = layers;
+    this.lookupCache = lookupCache;
+    boolean anyLive = false;
+    for (final Map<String, String> layer : layers) {
+      anyLive |= layer instanceof PrefixedProperties;
+    }
+    this.live = anyLive;
+  }
+
+  /**
+   * @param layers
+   *          the layers in priority order, highest first; layers which are not {@link ImmutableMap}s,
+   *          {@link LayeredProperties}, snapshot maps or live namespace views are copied
+   */
+  public static LayeredProperties of(@Nonnull final Iterable<? extends Map<String, String>> layers) {
+    final ImmutableList.Builder<Map<String, String>> builder = ImmutableList.builder();
+    for (final Map<String, String> layer : layers) {
+      if (layer instanceof LayeredProperties) {
+        builder.addAll(((LayeredProperties) layer).layers);
+      }
+      else if (layer instanceof PrefixedProperties || layer instanceof OverlayMap) {
+        builder.add(layer);
+      }
+      else if (!layer.isEmpty()) {
+        builder.add(ImmutableMap.copyOf(layer));
+      }
+    }
+    return new LayeredProperties(builder.build(), null);
+  }
+
+  @SafeVarargs
+  public static LayeredProperties of(@Nonnull final Map<String, String>... layers) {
+    final ImmutableList.Builder<Map<String, String>> builder = ImmutableList.builder();
+    for (final Map<String, String> layer : layers) {
+      builder.add(layer);
+    }
+    return of(builder.build());
+  }
+
+  /**
+   * Returns an immutable equivalent of the given properties, without copying {@link ImmutableMap}s,
+   * {@link LayeredProperties} or live namespace views.
+   */
+  public static Map<String, String> copyOf(@Nonnull final Map<String, String> properties) {
+    return properties instanceof LayeredProperties || properties instanceof PrefixedProperties ? properties
+        : ImmutableMap.copyOf(properties);
+  }
+
+  public ImmutableList<Map<String, String>> getLayers() {
+    return layers;
+  }
+
+  /**
+   * Returns a view with the given layer placed above the layers of this view.
+   */
+  public LayeredProperties overlay(@Nonnull final Map<String, String> layer) {
+    return of(ImmutableList.of(layer, this));
+  }
+
+  public LayeredProperties withLookupCache() {
+    return null == lookupCache ? new LayeredProperties(layers, Maps.<Object, Integer> newConcurrentMap()) : this;
+  }
+
+  /**
+   * The number of keys remembered by the lookup cache, zero if this view has none.
+   */
+  int getLookupCacheSize() {
+    return null == lookupCache ? 0 : lookupCache.size();
+  }
+
+  private int layerOf(@Nullable final Object key) {
+    final Integer cached = null == lookupCache || null == key ? null : lookupCache.get(key);
+    int layer;
+    if (null == cached || !layers.get(cached).containsKey(key)) {
+      layer = UNDEFINED;
+      for (int i = 0; UNDEFINED == layer && i < layers.size(); i++) {
+        if (layers.get(i).containsKey(key)) {
+          layer = i;
+        }
+      }
+      if (null != lookupCache && UNDEFINED != layer) {
+        lookupCache.put(key, layer);
+      }
+    }
+    else {
+      layer = cached;
+    }
+    return layer;
+  }
+
+  @Override
+  public String get(@Nullable final Object key) {
+    final int layer = layerOf(key);
+    return UNDEFINED == layer ? null : layers.get(layer).get(key);
+  }
+
+  @Override
+  public boolean containsKey(@Nullable final Object key) {
+    return UNDEFINED != layerOf(key);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    boolean empty = true;
+    for (int i = 0; empty && i < layers.size(); i++) {
+      empty = layers.get(i).isEmpty();
+    }
+    return empty;
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    EntrySet entries = entrySet;
+    if (null == entries) {
+      entries = new EntrySet();
+      entrySet = entries;
+    }
+    return entries;
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+    private volatile int size = -1;
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new AbstractIterator<Map.Entry<String, String>>() {
+
+        private int layer;
+
+        private Iterator<Map.Entry<String, String>> entries =
+            layers.isEmpty() ? null : layers.get(0).entrySet().iterator();
+
+        @Override
+        protected Map.Entry<String, String> computeNext() {
+          Map.Entry<String, String> next = null;
+          while (null == next && null != entries) {
+            if (entries.hasNext()) {
+              final Map.Entry<String, String> candidate = entries.next();
+              if (!shadowed(candidate.getKey())) {
+                next = candidate;
+              }
+            }
+            else {
+              layer++;
+              entries = layer < layers.size() ? layers.get(layer).entrySet().iterator() : null;
+            }
+          }
+          return null == next ? endOfData() : next;
+        }
+
+        private boolean shadowed(@Nonnull final String key) {
+          boolean shadowed = false;
+          for (int i = 0; !shadowed && i < layer; i++) {
+            shadowed = layers.get(i).containsKey(key);
+          }
+          return shadowed;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      int result = size;
+      if (result < 0) {
+        result = 0;
+        for (final Iterator<Map.Entry<String, String>> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+          result++;
+        }
+        if (!live) {
+          size = result;
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,416 @@
+package ca.cutterslade.utilities;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * A read only view of resolved properties stored in a compact binary snapshot file. The file holds the URL and SHA-256
+ * digest of every resource the properties were loaded from, a table of key and value offsets sorted by key, and a
+ * pool of UTF-8 strings. The file is memory mapped; a lookup is a binary search over the mapped key table, and only the
+ * value found is decoded. Every offset in the table is checked against the bounds of the pool when the file is
+ * opened, so a corrupt snapshot is rejected up front.
+ * <p>
+ * {@link PropertiesUtils#loadResolvedProperties(File, Iterable)} uses a snapshot while the digests of its resources
+ * still match, and otherwise resolves the resources and rewrites it.
+ */
+public final class MappedProperties extends AbstractMap<String, String> {
+
+  private static final Logger log = LoggerFactory.getLogger(MappedProperties.class);
+
+  private static final int MAGIC = 0x50524f50;
+
+  private static final int VERSION = 1;
+
+  private static final int INT_BYTES = 4;
+
+  private static final int ENTRY_BYTES = 2 * INT_BYTES;
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private final ByteBuffer buffer;
+
+  /**
+   * The URL and digest of each resource, in priority order; a resource may be listed more than once.
+   */
+  private final ImmutableList<Map.Entry<String, ByteBuffer>> digests;
+
+  private final int size;
+
+  private final int table;
+
+  private volatile EntrySet entrySet;
+
+  private MappedProperties(@Nonnull final ByteBuffer buffer) {
+    this.buffer = buffer;
+    final ByteBuffer header = buffer.duplicate();
+    Preconditions.checkArgument(MAGIC == header.getInt(), "Not a properties snapshot");
+    Preconditions.checkArgument(VERSION == header.getInt(), "Unsupported properties snapshot version");
+    final ImmutableList.Builder<Map.Entry<String, ByteBuffer>> builder = ImmutableList.builder();
+    for (int inputs = header.getInt(); inputs > 0; inputs--) {
+      checkString(header, header.position(), header.position());
+      final String url = readString(header, header.position());
+      header.position(header.position() + INT_BYTES + header.getInt(header.position()));
+      checkString(header, header.position(), header.position());
+      final byte[] digest = new byte[header.getInt()];
+      header.get(digest);
+      builder.add(Maps.immutableEntry(url, ByteBuffer.wrap(digest)));
+    }
+    this.digests = builder.build();
+    this.size = header.getInt();
+    this.table = header.position();
+    Preconditions.checkArgument(size >= 0 && table + (long) size * ENTRY_BYTES <= buffer.limit(),
+        "Truncated properties snapshot");
+    final int pool = table + size * ENTRY_BYTES;
+    for (int entry = 0; entry < size; entry++) {
+      checkString(buffer, pool, keyOffset(entry));
+      checkString(buffer, pool, valueOffset(entry));
+    }
+  }
+
+  /**
+   * Checks that the length prefixed string at the given offset lies between {@code start} and the end of the buffer,
+   * so that a corrupt snapshot is rejected when it is opened rather than failing or reading garbage on a later lookup.
+   */
+  private static void checkString(@Nonnull final ByteBuffer buffer, final int start, final int offset) {
+    Preconditions.checkArgument(offset >= start && (long) offset + INT_BYTES <= buffer.limit(),
+        "Corrupt properties snapshot: offset %s out of range", offset);
+    final int length = buffer.getInt(offset);
+    Preconditions.checkArgument(length >= 0 && (long) offset + INT_BYTES + length <= buffer.limit(),
+        "Corrupt properties snapshot: length %s at offset %s out of range", length, offset);
+  }
+
+  /**
+   * Maps an existing snapshot file.
+   */
+  public static MappedProperties open(@Nonnull final File file) throws IOException {
+    final RandomAccessFile input = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = input.getChannel();
+      return new MappedProperties(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    finally {
+      close(input);
+    }
+  }
+
+  /**
+   * Writes a snapshot of the given properties, recording the digests of the given resources. The file is written
+   * under a temporary name and then moved into place, so a reader never sees a partial snapshot.
+   */
+  public static void write(@Nonnull final File file, @Nonnull final Map<String, String> properties,
+      @Nonnull final Iterable<URL> resources) throws IOException {
+    write(file, properties, digests(resources));
+  }
+
+  private static void write(@Nonnull final File file, @Nonnull final Map<String, String> properties,
+      @Nonnull final List<Map.Entry<String, byte[]>> digests) throws IOException {
+    final List<byte[][]> entries = Lists.newArrayListWithCapacity(properties.size());
+    long length = 3 * INT_BYTES;
+    for (final Map.Entry<String, byte[]> digest : digests) {
+      length += 2 * INT_BYTES + digest.getKey().getBytes(Charsets.UTF_8).length + digest.getValue().length;
+    }
+    length += INT_BYTES;
+    for (final Map.Entry<String, String> entry : properties.entrySet()) {
+      final byte[][] encoded = { entry.getKey().getBytes(Charsets.UTF_8), entry.getValue().getBytes(Charsets.UTF_8) };
+      entries.add(encoded);
+      length += ENTRY_BYTES + 2 * INT_BYTES + encoded[0].length + encoded[1].length;
+    }
+    Preconditions.checkArgument(length <= Integer.MAX_VALUE, "Properties too large for a snapshot");
+    final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+    Collections.sort(entries, new Comparator<byte[][]>() {
+
+      @Override
+      public int compare(final byte[][] left, final byte[][] right) {
+        return comparator.compare(left[0], right[0]);
+      }
+    });
+    final ByteBuffer output = ByteBuffer.allocate((int) length);
+    output.putInt(MAGIC).putInt(VERSION).putInt(digests.size());
+    for (final Map.Entry<String, byte[]> digest : digests) {
+      putBytes(output, digest.getKey().getBytes(Charsets.UTF_8));
+      putBytes(output, digest.getValue());
+    }
+    output.putInt(entries.size());
+    int pool = output.position() + entries.size() * ENTRY_BYTES;
+    for (final byte[][] entry : entries) {
+      output.putInt(pool);
+      pool += INT_BYTES + entry[0].length;
+      output.putInt(pool);
+      pool += INT_BYTES + entry[1].length;
+    }
+    for (final byte[][] entry : entries) {
+      putBytes(output, entry[0]);
+      putBytes(output, entry[1]);
+    }
+    output.flip();
+    final File temporary = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+    boolean moved = false;
+    try {
+      final FileOutputStream stream = new FileOutputStream(temporary);
+      try {
+        final FileChannel channel = stream.getChannel();
+        while (output.hasRemaining()) {
+          channel.write(output);
+        }
+        channel.force(true);
+      }
+      finally {
+        close(stream);
+      }
+      Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      moved = true;
+    }
+    finally {
+      if (!moved && !temporary.delete()) {
+        log.warn("Could not delete temporary snapshot {}", temporary);
+      }
+    }
+  }
+
+  /**
+   * Opens the snapshot if it exists and was written from resources whose content is unchanged, otherwise loads and
+   * resolves the resources, as {@link PropertiesUtils#resolveProperties(Iterable)} would, and rewrites the snapshot.
+   * The snapshot is only a cache: if it cannot be rewritten, as in a read only directory or on a full disk, a warning
+   * is logged and the resolved properties are still returned.
+   */
+  static Map<String, String> load(@Nonnull final File file, @Nonnull final Iterable<URL> resources)
+      throws IOException {
+    final ImmutableList<Map.Entry<String, byte[]>> digests = digests(resources);
+    Map<String, String> properties = null;
+    if (file.isFile()) {
+      try {
+        final MappedProperties snapshot = open(file);
+        if (snapshot.matches(digests)) {
+          properties = snapshot;
+        }
+        else {
+          log.debug("Properties snapshot {} is out of date", file);
+        }
+      }
+      catch (final IllegalArgumentException e) {
+        log.warn("Ignoring unreadable properties snapshot " + file, e);
+      }
+      catch (final BufferUnderflowException e) {
+        log.warn("Ignoring truncated properties snapshot " + file, e);
+      }
+    }
+    if (null == properties) {
+      final List<Map<String, String>> layers = Lists.newArrayList();
+      for (final URL resource : resources) {
+        layers.add(PropertiesUtils.loadProperties(resource));
+      }
+      properties = PropertiesUtils.resolveProperties(layers);
+      try {
+        write(file, properties, digests);
+      }
+      catch (final IOException e) {
+        log.warn("Could not write properties snapshot " + file, e);
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Whether this snapshot was written from the same resources, in the same order, with the same content.
+   */
+  private boolean matches(@Nonnull final List<Map.Entry<String, byte[]>> expected) {
+    boolean matches = expected.size() == digests.size();
+    final Iterator<Map.Entry<String, ByteBuffer>> actual = digests.iterator();
+    for (final Iterator<Map.Entry<String, byte[]>> iterator = expected.iterator(); matches
+        && iterator.hasNext();) {
+      final Map.Entry<String, byte[]> entry = iterator.next();
+      final Map.Entry<String, ByteBuffer> digest = actual.next();
+      matches = entry.getKey().equals(digest.getKey()) && digest.getValue().equals(ByteBuffer.wrap(entry.getValue()));
+    }
+    return matches;
+  }
+
+  /**
+   * Digests the given resources in order, listing a resource given more than once each time it is given, as it is
+   * loaded as a layer each time.
+   */
+  private static ImmutableList<Map.Entry<String, byte[]>> digests(@Nonnull final Iterable<URL> resources)
+      throws IOException {
+    final ImmutableList.Builder<Map.Entry<String, byte[]>> builder = ImmutableList.builder();
+    for (final URL resource : resources) {
+      final MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+      }
+      catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+      builder.add(Maps.immutableEntry(resource.toExternalForm(),
+          ByteStreams.getDigest(Resources.newInputStreamSupplier(resource), digest)));
+    }
+    return builder.build();
+  }
+
+  private static void putBytes(@Nonnull final ByteBuffer output, @Nonnull final byte[] bytes) {
+    output.putInt(bytes.length).put(bytes);
+  }
+
+  private static String readString(@Nonnull final ByteBuffer source, final int offset) {
+    final ByteBuffer string = source.duplicate();
+    string.position(offset + INT_BYTES);
+    final byte[] bytes = new byte[source.getInt(offset)];
+    string.get(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  private static void close(@Nonnull final Closeable closeable) {
+    try {
+      closeable.close();
+    }
+    catch (final IOException e) {
+      log.warn("Exception closing resource", e);
+    }
+  }
+
+  private int keyOffset(final int entry) {
+    return buffer.getInt(table + entry * ENTRY_BYTES);
+  }
+
+  private int valueOffset(final int entry) {
+    return buffer.getInt(table + entry * ENTRY_BYTES + INT_BYTES);
+  }
+
+  /**
+   * Compares the key stored at the given offset with the given UTF-8 bytes, in unsigned byte order, without decoding
+   * it.
+   */
+  private int compareKey(final int offset, @Nonnull final byte[] key) {
+    final int length = buffer.getInt(offset);
+    final int start = offset + INT_BYTES;
+    int result = 0;
+    for (int i = 0; 0 == result && i < length && i < key.length; i++) {
+      result = UnsignedBytes.compare(buffer.get(start + i), key[i]);
+    }
+    return 0 == result ? length - key.length : result;
+  }
+
+  private int find(@Nullable final Object key) {
+    int found = -1;
+    if (key instanceof String) {
+      final byte[] bytes = ((String) key).getBytes(Charsets.UTF_8);
+      int low = 0;
+      int high = size - 1;
+      while (-1 == found && low <= high) {
+        final int middle = (low + high) >>> 1;
+        final int comparison = compareKey(keyOffset(middle), bytes);
+        if (comparison < 0) {
+          low = middle + 1;
+        }
+        else if (comparison > 0) {
+          high = middle - 1;
+        }
+        else {
+          found = middle;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * The URLs of the resources this snapshot was resolved from, in priority order.
+   */
+  public ImmutableList<String> getResources() {
+    final ImmutableList.Builder<String> resources = ImmutableList.builder();
+    for (final Map.Entry<String, ByteBuffer> digest : digests) {
+      resources.add(digest.getKey());
+    }
+    return resources.build();
+  }
+
+  @Override
+  public String get(@Nullable final Object key) {
+    final int entry = find(key);
+    return -1 == entry ? null : readString(buffer, valueOffset(entry));
+  }
+
+  @Override
+  public boolean containsKey(@Nullable final Object key) {
+    return -1 != find(key);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    EntrySet entries = entrySet;
+    if (null == entries) {
+      entries = new EntrySet();
+      entrySet = entries;
+    }
+    return entries;
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new AbstractIterator<Map.Entry<String, String>>() {
+
+        private int entry;
+
+        @Override
+        protected Map.Entry<String, String> computeNext() {
+          final Map.Entry<String, String> next;
+          if (entry < size) {
+            next = Maps.immutableEntry(readString(buffer, keyOffset(entry)), readString(buffer, valueOffset(entry)));
+            entry++;
+          }
+          else {
+            next = endOfData();
+          }
+          return next;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package ca.cutterslade.utilities;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * An immutable map made of an {@link ImmutableMap} base and a few layers of changes above it, newest first, so that a
+ * copy with some entries changed by {@link #with(Map)} costs time proportional to the changes rather than to the size
+ * of the map. A layer is merged into the one below it once it is at least half that layer's size, which keeps the
+ * number of layers logarithmic, and the oldest layer is folded into a new base once it is at least half the size of
+ * the base, so each change is copied a logarithmic number of times in all.
+ */
+final class OverlayMap<K, V> extends AbstractMap<K, V> {
+
+  private final ImmutableMap<K, V> base;
+
+  /**
+   * Newest first; an absent value removes the key.
+   */
+  private final ImmutableList<ImmutableMap<K, Optional<V>>> changes;
+
+  private final int size;
+
+  private volatile EntrySet entrySet;
+
+  private OverlayMap(@Nonnull final ImmutableMap<K, V> base,
+      @Nonnull final ImmutableList<ImmutableMap<K, Optional<V>>> changes, final int size) {
+    this.base = base;
+    this.changes = changes;
+    this.size = size;
+  }
+
+  static <K, V> OverlayMap<K, V> of(@Nonnull final ImmutableMap<K, V> base) {
+    return new OverlayMap<K, V>(base, ImmutableList.<ImmutableMap<K, Optional<V>>> of(), base.size());
+  }
+
+  /**
+   * Returns a copy of this map with the given changes applied.
+   *
+   * @param changed
+   *          the new values; a {@code null} value removes the key
+   */
+  OverlayMap<K, V> with(@Nonnull final Map<K, ? extends V> changed) {
+    final OverlayMap<K, V> result;
+    if (changed.isEmpty()) {
+      result = this;
+    }
+    else {
+      int newSize = size;
+      final ImmutableMap.Builder<K, Optional<V>> layer = ImmutableMap.builder();
+      for (final Map.Entry<K, ? extends V> entry : changed.entrySet()) {
+        final boolean present = containsKey(entry.getKey());
+        if (null == entry.getValue()) {
+          newSize -= present ? 1 : 0;
+        }
+        else {
+          newSize += present ? 0 : 1;
+        }
+        layer.put(entry.getKey(), Optional.<V> fromNullable(entry.getValue()));
+      }
+      final List<ImmutableMap<K, Optional<V>>> layers = Lists.newArrayList(changes);
+      ImmutableMap<K, Optional<V>> top = layer.build();
+      while (!layers.isEmpty() && top.size() * 2 >= layers.get(0).size()) {
+        top = merge(top, layers.remove(0));
+      }
+      layers.add(0, top);
+      ImmutableMap<K, V> newBase = base;
+      final ImmutableMap<K, Optional<V>> oldest = layers.get(layers.size() - 1);
+      if (oldest.size() * 2 >= base.size()) {
+        newBase = fold(oldest, base);
+        layers.remove(layers.size() - 1);
+      }
+      result = new OverlayMap<K, V>(newBase, ImmutableList.copyOf(layers), newSize);
+    }
+    return result;
+  }
+
+  /**
+   * The number of layers of changes above the base.
+   */
+  int getDepth() {
+    return changes.size();
+  }
+
+  private static <K, V> ImmutableMap<K, Optional<V>> merge(@Nonnull final ImmutableMap<K, Optional<V>> newer,
+      @Nonnull final ImmutableMap<K, Optional<V>> older) {
+    final Map<K, Optional<V>> merged = Maps.newHashMap(older);
+    merged.putAll(newer);
+    return ImmutableMap.copyOf(merged);
+  }
+
+  private static <K, V> ImmutableMap<K, V> fold(@Nonnull final ImmutableMap<K, Optional<V>> layer,
+      @Nonnull final ImmutableMap<K, V> base) {
+    final Map<K, V> folded = Maps.newHashMap(base);
+    for (final Map.Entry<K, Optional<V>> entry : layer.entrySet()) {
+      if (entry.getValue().isPresent()) {
+        folded.put(entry.getKey(), entry.getValue().get());
+      }
+      else {
+        folded.remove(entry.getKey());
+      }
+    }
+    return ImmutableMap.copyOf(folded);
+  }
+
+  @Nullable
+  private Optional<V> lookup(@Nullable final Object key) {
+    Optional<V> found = null;
+    for (int i = 0; null == found && i < changes.size(); i++) {
+      found = changes.get(i).get(key);
+    }
+    return null == found ? Optional.fromNullable(base.get(key)) : found;
+  }
+
+  @Override
+  public V get(@Nullable final Object key) {
+    return null == key ? null : lookup(key).orNull();
+  }
+
+  @Override
+  public boolean containsKey(@Nullable final Object key) {
+    return null != key && lookup(key).isPresent();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return 0 == size;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    EntrySet entries = entrySet;
+    if (null == entries) {
+      entries = new EntrySet();
+      entrySet = entries;
+    }
+    return entries;
+  }
+
+  /**
+   * Iterates the layers of changes newest first and then the base, skipping keys changed in a newer layer.
+   */
+  private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+      return new AbstractIterator<Map.Entry<K, V>>() {
+
+        private int layer;
+
+        private Iterator<? extends Map.Entry<K, ?>> entries =
+            changes.isEmpty() ? base.entrySet().iterator() : changes.get(0).entrySet().iterator();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Map.Entry<K, V> computeNext() {
+          Map.Entry<K, V> next = null;
+          while (null == next && null != entries) {
+            if (entries.hasNext()) {
+              final Map.Entry<K, ?> candidate = entries.next();
+              if (!shadowed(candidate.getKey())) {
+                if (layer == changes.size()) {
+                  next = (Map.Entry<K, V>) candidate;
+                }
+                else if (((Optional<V>) candidate.getValue()).isPresent()) {
+                  next = Maps.immutableEntry(candidate.getKey(), ((Optional<V>) candidate.getValue()).get());
+                }
+              }
+            }
+            else {
+              layer++;
+              entries = layer < changes.size() ? changes.get(layer).entrySet().iterator()
+                  : layer == changes.size() ? base.entrySet().iterator() : null;
+            }
+          }
+          return null == next ? endOfData() : next;
+        }
+
+        private boolean shadowed(@Nonnull final K key) {
+          boolean shadowed = false;
+          for (int i = 0; !shadowed && i < layer; i++) {
+            shadowed = changes.get(i).containsKey(key);
+          }
+          return shadowed;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package ca.cutterslade.utilities;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+/**
+ * Resolves all properties at once by building the dependency graph of the keys, then evaluating the keys one level
+ * at a time, where each level contains only keys whose dependencies were evaluated in earlier levels. The keys of a
+ * level are evaluated in parallel on a {@link ForkJoinPool}. Circular references are all reported before any key is
+ * evaluated.
+ * <p>
+ * Setting the system property named by {@link #SEQUENTIAL_PROPERTY} to {@code true} makes resolvers created without
+ * an explicit pool evaluate each level on the calling thread.
+ */
+public class ParallelPropertiesResolver {
+
+  public static final String SEQUENTIAL_PROPERTY = ParallelPropertiesResolver.class.getName() + ".sequential";
+
+  private static final int SPLIT_THRESHOLD = 512;
+
+  private static final class DefaultPool {
+
+    static final ForkJoinPool POOL = new ForkJoinPool();
+  }
+
+  private final Map<String, String> source;
+
+  private final ForkJoinPool pool;
+
+  public ParallelPropertiesResolver(@Nonnull final Map<String, String> properties) {
+    this(properties, !Boolean.getBoolean(SEQUENTIAL_PROPERTY));
+  }
+
+  public ParallelPropertiesResolver(@Nonnull final Map<String, String> properties, final boolean parallel) {
+    this(properties, parallel ? DefaultPool.POOL : null);
+  }
+
+  /**
+   * @param pool
+   *          the pool to evaluate large levels on, or {@code null} to evaluate every level on the calling thread
+   */
+  public ParallelPropertiesResolver(@Nonnull final Map<String, String> properties, @Nullable final ForkJoinPool pool) {
+    this.source = LayeredProperties.copyOf(properties);
+    this.pool = pool;
+  }
+
+  public ParallelPropertiesResolver(@Nonnull final Iterable<? extends Map<String, String>> sources) {
+    this(LayeredProperties.of(sources), !Boolean.getBoolean(SEQUENTIAL_PROPERTY));
+  }
+
+  public boolean isParallel() {
+    return null != pool;
+  }
+
+  public ImmutableMap<String, String> getResolved() {
+    final Graph graph = new Graph(source);
+    final String[] values = new String[graph.keys.length];
+    final ComputationCache computations = new ComputationCache();
+    final PropertyTemplate.Context context = new PropertyTemplate.Context() {
+
+      @Override
+      public String getValue(final String key) {
+        final Integer index = graph.indexes.get(key);
+        return null == index ? null : values[index];
+      }
+
+      @Override
+      public String compute(final String function, final ImmutableList<String> arguments) {
+        return computations.compute(function, arguments);
+      }
+    };
+    for (final int[] level : graph.levels()) {
+      final LevelAction action = new LevelAction(graph.templates, values, context, level, 0, level.length);
+      if (null == pool || level.length <= SPLIT_THRESHOLD) {
+        action.compute();
+      }
+      else {
+        pool.invoke(action);
+      }
+    }
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (int i = 0; i < values.length; i++) {
+      builder.put(graph.keys[i], values[i]);
+    }
+    return builder.build();
+  }
+
+  private static final class LevelAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PropertyTemplate[] templates;
+
+    private final String[] values;
+
+    private final PropertyTemplate.Context context;
+
+    private final int[] level;
+
+    private final int from;
+
+    private final int to;
+
+    LevelAction(@Nonnull final PropertyTemplate[] templates, @Nonnull final String[] values,
+        @Nonnull final PropertyTemplate.Context context, @Nonnull final int[] level, final int from, final int to) {
+      this.templates = templates;
+      this.values = values;
+      this.context = context;
+      this.level = level;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        for (int i = from; i < to; i++) {
+          final int key = level[i];
+          values[key] = templates[key].resolve(context);
+        }
+      }
+      else {
+        final int middle = (from + to) >>> 1;
+        invokeAll(new LevelAction(templates, values, context, level, from, middle),
+            new LevelAction(templates, values, context, level, middle, to));
+      }
+    }
+  }
+
+  private static final class Graph {
+
+    private final String[] keys;
+
+    private final Map<String, Integer> indexes;
+
+    private final PropertyTemplate[] templates;
+
+    private final int[][] dependencies;
+
+    Graph(@Nonnull final Map<String, String> source) {
+      keys = source.keySet().toArray(new String[source.size()]);
+      indexes = Maps.newHashMapWithExpectedSize(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        indexes.put(keys[i], i);
+      }
+      templates = new PropertyTemplate[keys.length];
+      dependencies = new int[keys.length][];
+      final int[] buffer = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        templates[i] = PropertyTemplate.compile(source.get(keys[i]));
+        int count = 0;
+        for (final String reference : templates[i].getReferences()) {
+          final Integer index = indexes.get(reference);
+          if (null != index) {
+            buffer[count++] = index;
+          }
+        }
+        dependencies[i] = Arrays.copyOf(buffer, count);
+      }
+    }
+
+    /**
+     * Groups the keys by the length of their longest dependency chain, failing if any keys are part of a cycle.
+     */
+    List<int[]> levels() {
+      final int[] remaining = new int[keys.length];
+      final int[] dependentCounts = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        remaining[i] = dependencies[i].length;
+        for (final int dependency : dependencies[i]) {
+          dependentCounts[dependency]++;
+        }
+      }
+      final int[][] dependents = new int[keys.length][];
+      for (int i = 0; i < keys.length; i++) {
+        dependents[i] = new int[dependentCounts[i]];
+        dependentCounts[i] = 0;
+      }
+      for (int i = 0; i < keys.length; i++) {
+        for (final int dependency : dependencies[i]) {
+          dependents[dependency][dependentCounts[dependency]++] = i;
+        }
+      }
+      final List<int[]> levels = Lists.newArrayList();
+      final int[] level = new int[keys.length];
+      int size = 0;
+      for (int i = 0; i < keys.length; i++) {
+        if (0 == remaining[i]) {
+          level[size++] = i;
+        }
+      }
+      int processed = 0;
+      while (size > 0) {
+        final int[] current = Arrays.copyOf(level, size);
+        levels.add(current);
+        processed += size;
+        size = 0;
+        for (final int key : current) {
+          for (final int dependent : dependents[key]) {
+            if (0 == --remaining[dependent]) {
+              level[size++] = dependent;
+            }
+          }
+        }
+      }
+      if (processed < keys.length) {
+        throw new IllegalStateException("Circular references found among keys: "
+            + Joiner.on(", ").join(cycles(remaining)));
+      }
+      return levels;
+    }
+
+    /**
+     * Finds the strongly connected components of the keys which could not be levelled, using an iterative form of
+     * Tarjan's algorithm.
+     */
+    private List<List<String>> cycles(@Nonnull final int[] remaining) {
+      final int[] order = new int[keys.length];
+      final int[] low = new int[keys.length];
+      Arrays.fill(order, -1);
+      final boolean[] onStack = new boolean[keys.length];
+      final int[] stack = new int[keys.length];
+      final int[] callNodes = new int[keys.length];
+      final int[] callEdges = new int[keys.length];
+      final List<List<String>> cycles = Lists.newArrayList();
+      int counter = 0;
+      int stackSize = 0;
+      for (int root = 0; root < keys.length; root++) {
+        if (0 != remaining[root] && -1 == order[root]) {
+          int depth = 0;
+          order[root] = low[root] = counter++;
+          stack[stackSize++] = root;
+          onStack[root] = true;
+          callNodes[depth] = root;
+          callEdges[depth++] = 0;
+          while (depth > 0) {
+            final int node = callNodes[depth - 1];
+            if (callEdges[depth - 1] < dependencies[node].length) {
+              final int next = dependencies[node][callEdges[depth - 1]++];
+              if (-1 == order[next]) {
+                order[next] = low[next] = counter++;
+                stack[stackSize++] = next;
+                onStack[next] = true;
+                callNodes[depth] = next;
+                callEdges[depth++] = 0;
+              }
+              else if (onStack[next]) {
+                low[node] = Math.min(low[node], order[next]);
+              }
+            }
+            else {
+              depth--;
+              if (low[node] == order[node]) {
+                final List<String> component = Lists.newArrayList();
+                int member;
+                do {
+                  member = stack[--stackSize];
+                  onStack[member] = false;
+                  component.add(keys[member]);
+                }
+                while (member != node);
+                if (component.size() > 1 || contains(dependencies[node], node)) {
+                  cycles.add(Ordering.natural().sortedCopy(component));
+                }
+              }
+              if (depth > 0) {
+                final int parent = callNodes[depth - 1];
+                low[parent] = Math.min(low[parent], low[node]);
+              }
+            }
+          }
+        }
+      }
+      return cycles;
+    }
+
+    private static boolean contains(@Nonnull final int[] values, final int value) {
+      boolean contains = false;
+      for (int i = 0; !contains && i < values.length; i++) {
+        contains = value == values[i];
+      }
+      return contains;
+    }
+  }
+}
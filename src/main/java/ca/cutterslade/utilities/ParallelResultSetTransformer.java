@@ -0,0 +1,259 @@
+package ca.cutterslade.utilities;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Transforms the rows of a {@link ResultSet} on a pool of threads, for transformations too expensive to keep up with
+ * the cursor on one thread. The cursor is only ever advanced by the consuming thread, which reads the raw column values
+ * of a batch of rows with {@link ResultSet#getObject(int)} and hands the batch to the pool; the transformer is given
+ * each row as an unmodifiable list of its column values, never the result set.
+ * <p>
+ * At most {@code maxInFlightBatches} batches are read ahead of the consumer, which bounds the rows held in memory. In
+ * ordered mode rows are returned in the order they were read, and an exception thrown by the transformer or by the
+ * result set is thrown to the consumer after the rows before it; in unordered mode each batch is returned as soon as it
+ * has been transformed. Once an exception has been thrown the cursor is not read again: the outstanding batches are
+ * cancelled, the result set is closed and {@link #hasNext()} returns {@code false}. {@link #close()} likewise cancels
+ * the outstanding batches and closes the result set.
+ */
+public class ParallelResultSetTransformer<T> implements Iterator<T>, Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ParallelResultSetTransformer.class);
+
+  private static final class DefaultPool {
+
+    static final ForkJoinPool POOL = new ForkJoinPool();
+  }
+
+  private final ResultSet result;
+
+  private final Function<? super List<Object>, T> transformer;
+
+  private final int columns;
+
+  private final int batchSize;
+
+  private final int maxInFlightBatches;
+
+  private final boolean ordered;
+
+  private final ExecutorService executor;
+
+  /**
+   * Collects batches as they finish in unordered mode.
+   */
+  private final CompletionService<List<Object>> completion;
+
+  private final BlockingQueue<Future<List<Object>>> completed = new LinkedBlockingQueue<Future<List<Object>>>();
+
+  private final Deque<Future<List<Object>>> inFlight = new ArrayDeque<Future<List<Object>>>();
+
+  private boolean exhausted;
+
+  private boolean closed;
+
+  private PeekingIterator<Object> current = Iterators.peekingIterator(Iterators.emptyIterator());
+
+  public ParallelResultSetTransformer(@Nonnull final ResultSet result,
+      @Nonnull final Function<? super List<Object>, T> transformer, final int batchSize, final int maxInFlightBatches,
+      final boolean ordered) throws SQLException {
+    this(result, transformer, batchSize, maxInFlightBatches, ordered, DefaultPool.POOL);
+  }
+
+  /**
+   * @param batchSize
+   *          the number of rows handed to the pool at a time
+   * @param maxInFlightBatches
+   *          the number of batches which may be read ahead of the consumer
+   * @param ordered
+   *          {@code true} to return rows in the order they were read, {@code false} to return each batch as soon as it
+   *          has been transformed
+   * @param executor
+   *          the pool to transform batches on
+   */
+  public ParallelResultSetTransformer(@Nonnull final ResultSet result,
+      @Nonnull final Function<? super List<Object>, T> transformer, final int batchSize, final int maxInFlightBatches,
+      final boolean ordered, @Nonnull final ExecutorService executor) throws SQLException {
+    Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+    Preconditions.checkArgument(maxInFlightBatches > 0, "maxInFlightBatches must be positive");
+    this.result = result;
+    this.transformer = transformer;
+    this.columns = result.getMetaData().getColumnCount();
+    this.batchSize = batchSize;
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.ordered = ordered;
+    this.executor = executor;
+    this.completion = new ExecutorCompletionService<List<Object>>(executor, completed);
+  }
+
+  @Override
+  public boolean hasNext() {
+    Preconditions.checkState(!closed, "Transformer has been closed");
+    fill();
+    while (!current.hasNext() && !inFlight.isEmpty()) {
+      final Future<List<Object>> batch;
+      if (ordered) {
+        batch = inFlight.remove();
+      }
+      else {
+        batch = Uninterruptibles.takeUninterruptibly(completed);
+        inFlight.remove(batch);
+      }
+      try {
+        current = Iterators.peekingIterator(Uninterruptibles.getUninterruptibly(batch).iterator());
+      }
+      catch (final ExecutionException e) {
+        current = Iterators.<Object> peekingIterator(Iterators.singletonIterator(new Failure(e.getCause())));
+      }
+      fill();
+    }
+    if (current.hasNext() && current.peek() instanceof Failure) {
+      final Throwable failure = ((Failure) current.next()).cause;
+      finish();
+      throw Throwables.propagate(failure);
+    }
+    return current.hasNext();
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    @SuppressWarnings("unchecked")
+    final T next = (T) current.next();
+    return next;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("remove is not supported");
+  }
+
+  /**
+   * Cancels the batches not yet returned and closes the result set.
+   */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      finish();
+    }
+  }
+
+  /**
+   * Stops reading the cursor, cancels the batches not yet returned and closes the result set.
+   */
+  private void finish() {
+    exhausted = true;
+    for (final Future<List<Object>> batch : inFlight) {
+      batch.cancel(false);
+    }
+    inFlight.clear();
+    current = Iterators.peekingIterator(Iterators.emptyIterator());
+    try {
+      result.close();
+    }
+    catch (final SQLException e) {
+      log.warn("Exception closing result set", e);
+    }
+  }
+
+  /**
+   * Reads batches from the cursor until {@code maxInFlightBatches} are outstanding or the rows are exhausted. An
+   * exception from the cursor ends the reading; the rows read before it are still submitted, followed by the failure.
+   */
+  private void fill() {
+    while (!exhausted && inFlight.size() < maxInFlightBatches) {
+      final List<List<Object>> rows = Lists.newArrayListWithCapacity(batchSize);
+      SQLException error = null;
+      try {
+        while (rows.size() < batchSize && !exhausted) {
+          if (result.next()) {
+            final Object[] values = new Object[columns];
+            for (int i = 0; i < columns; i++) {
+              values[i] = result.getObject(i + 1);
+            }
+            rows.add(Collections.unmodifiableList(Arrays.asList(values)));
+          }
+          else {
+            exhausted = true;
+          }
+        }
+      }
+      catch (final SQLException e) {
+        exhausted = true;
+        error = e;
+      }
+      if (!rows.isEmpty() || null != error) {
+        final Callable<List<Object>> task = task(rows, error);
+        inFlight.add(ordered ? executor.submit(task) : completion.submit(task));
+      }
+    }
+  }
+
+  private Callable<List<Object>> task(@Nonnull final List<List<Object>> rows, @Nullable final SQLException error) {
+    return new Callable<List<Object>>() {
+
+      @Override
+      public List<Object> call() {
+        final List<Object> transformed = Lists.newArrayListWithCapacity(rows.size() + 1);
+        try {
+          for (final List<Object> row : rows) {
+            transformed.add(transformer.apply(row));
+          }
+          if (null != error) {
+            transformed.add(new Failure(error));
+          }
+        }
+        catch (final RuntimeException e) {
+          transformed.add(new Failure(e));
+        }
+        return transformed;
+      }
+    };
+  }
+
+  /**
+   * Takes the place of the row whose transformation failed, so the rows before it are still returned.
+   */
+  private static final class Failure {
+
+    final Throwable cause;
+
+    Failure(@Nonnull final Throwable cause) {
+      this.cause = cause;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package ca.cutterslade.utilities;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Transforms the rows of a {@link ResultSet} as {@link ResultSetTransformer} does, but on a reader thread which runs
+ * ahead of the consumer, so that waiting for the database overlaps with processing the rows already read. The reader
+ * stops when {@code capacity} transformed rows are waiting to be consumed, and resumes as the consumer takes them.
+ * <p>
+ * An exception thrown by the result set or the transformer is thrown to the consumer after the rows read before it.
+ * The result set belongs to the reader until the rows are exhausted or an exception is thrown, and must not be used by
+ * other threads meanwhile. {@link #close()} stops the reader, waits for it, and closes the result set.
+ */
+public class PrefetchingResultSetTransformer<T> implements Iterator<T>, Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(PrefetchingResultSetTransformer.class);
+
+  private static final Object NULL = new Object();
+
+  private static final Object END = new Object();
+
+  private final ResultSet result;
+
+  private final Function<ResultSet, T> transformer;
+
+  private final BlockingQueue<Object> queue;
+
+  private final CountDownLatch finished = new CountDownLatch(1);
+
+  private volatile boolean cancelled;
+
+  private Object next;
+
+  public PrefetchingResultSetTransformer(@Nonnull final ResultSet result,
+      @Nonnull final Function<ResultSet, T> transformer, final int capacity) {
+    this(result, transformer, capacity, new Executor() {
+
+      @Override
+      public void execute(final Runnable command) {
+        final Thread thread = new Thread(command, "PrefetchingResultSetTransformer");
+        thread.setDaemon(true);
+        thread.start();
+      }
+    });
+  }
+
+  /**
+   * @param executor
+   *          runs the reader, which occupies a thread until the rows are exhausted or the transformer is closed
+   */
+  public PrefetchingResultSetTransformer(@Nonnull final ResultSet result,
+      @Nonnull final Function<ResultSet, T> transformer, final int capacity, @Nonnull final Executor executor) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive");
+    this.result = result;
+    this.transformer = transformer;
+    this.queue = new ArrayBlockingQueue<Object>(capacity);
+    executor.execute(new Runnable() {
+
+      @Override
+      public void run() {
+        read();
+      }
+    });
+  }
+
+  private void read() {
+    try {
+      while (!cancelled && result.next()) {
+        final T value = transformer.apply(result);
+        Uninterruptibles.putUninterruptibly(queue, null == value ? NULL : value);
+      }
+      deliver(END);
+    }
+    catch (final SQLException e) {
+      deliver(new Failure(e));
+    }
+    catch (final RuntimeException e) {
+      deliver(new Failure(e));
+    }
+    catch (final Error e) {
+      deliver(new Failure(e));
+      throw e;
+    }
+    finally {
+      finished.countDown();
+    }
+  }
+
+  private void deliver(@Nonnull final Object item) {
+    if (cancelled) {
+      queue.offer(item);
+    }
+    else {
+      Uninterruptibles.putUninterruptibly(queue, item);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (null == next) {
+      Preconditions.checkState(!cancelled, "Transformer has been closed");
+      next = Uninterruptibles.takeUninterruptibly(queue);
+    }
+    if (next instanceof Failure) {
+      final Throwable failure = ((Failure) next).cause;
+      next = END;
+      throw Throwables.propagate(failure);
+    }
+    return END != next;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Object value = next;
+    next = null;
+    return NULL == value ? null : (T) value;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("remove is not supported");
+  }
+
+  /**
+   * Stops the reader and closes the result set, once a call the reader has made to the result set or the transformer
+   * has returned. Rows not yet consumed are discarded.
+   */
+  @Override
+  public void close() {
+    if (!cancelled) {
+      cancelled = true;
+      queue.clear();
+      Uninterruptibles.awaitUninterruptibly(finished);
+      queue.clear();
+      try {
+        result.close();
+      }
+      catch (final SQLException e) {
+        log.warn("Exception closing result set", e);
+      }
+    }
+  }
+
+  private static final class Failure {
+
+    final Throwable cause;
+
+    Failure(@Nonnull final Throwable cause) {
+      this.cause = cause;
+    }
+  }
+}
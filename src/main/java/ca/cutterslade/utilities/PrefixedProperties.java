@@ -0,0 +1,105 @@
+package ca.cutterslade.utilities;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+/**
+ * A read only view of a map with a namespace prefix added to every key, such as {@code sys.} on the system properties.
+ * Nothing is copied: a lookup strips the prefix and consults the underlying map, so the view reflects later changes
+ * to it. Entries whose key or value is not a {@link String} are left out.
+ * <p>
+ * A {@link Properties} delegate is read through {@link Properties#getProperty(String)} and iterated over a snapshot of
+ * {@link Properties#stringPropertyNames()}, so iterating never throws {@link java.util.ConcurrentModificationException}
+ * while another thread sets a property.
+ */
+final class PrefixedProperties extends AbstractMap<String, String> {
+
+  private final String prefix;
+
+  private final Map<?, ?> delegate;
+
+  private final EntrySet entrySet = new EntrySet();
+
+  PrefixedProperties(@Nonnull final String prefix, @Nonnull final Map<?, ?> delegate) {
+    this.prefix = prefix;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String get(@Nullable final Object key) {
+    String value = null;
+    if (key instanceof String && ((String) key).startsWith(prefix)) {
+      value = lookup(((String) key).substring(prefix.length()));
+    }
+    return value;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable final Object key) {
+    return null != get(key);
+  }
+
+  /**
+   * Answered by the delegate without iterating it; a delegate holding only entries which are not strings is reported
+   * as not empty.
+   */
+  @Override
+  public boolean isEmpty() {
+    return delegate.isEmpty();
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    return entrySet;
+  }
+
+  @Nullable
+  private String lookup(@Nonnull final String name) {
+    final Object found =
+        delegate instanceof Properties ? ((Properties) delegate).getProperty(name) : delegate.get(name);
+    return found instanceof String ? (String) found : null;
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      final Iterator<?> names = delegate instanceof Properties ? ((Properties) delegate).stringPropertyNames()
+          .iterator() : delegate.keySet().iterator();
+      return new AbstractIterator<Map.Entry<String, String>>() {
+
+        @Override
+        protected Map.Entry<String, String> computeNext() {
+          Map.Entry<String, String> next = null;
+          while (null == next && names.hasNext()) {
+            final Object name = names.next();
+            final String value = name instanceof String ? lookup((String) name) : null;
+            if (null != value) {
+              next = Maps.immutableEntry(prefix + name, value);
+            }
+          }
+          return null == next ? endOfData() : next;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (final Iterator<Map.Entry<String, String>> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+        size++;
+      }
+      return size;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package ca.cutterslade.utilities;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * Iterates over one numeric column of a {@link ResultSet} without boxing, as a counterpart to a
+ * {@link ResultSetTransformer} using {@link ResultSetTransformer#INTEGER_TRANSFORMER}. Values are read one at a time
+ * with {@link #nextInt()}, {@link #nextLong()} or {@link #nextDouble()}, or drained in bulk into a caller supplied
+ * array with the {@code fillInto} methods.
+ * <p>
+ * As with {@link ResultSet}, an SQL {@code NULL} is read as zero; {@link #wasNull()} tells whether the last value read
+ * one at a time was {@code NULL}, and the bulk methods record {@code NULL}s in an optional {@link BitSet}.
+ */
+public class PrimitiveResultSetIterator {
+
+  private final ResultSet result;
+
+  private final int column;
+
+  private boolean alreadyHasNext;
+
+  private boolean wasNull;
+
+  public PrimitiveResultSetIterator(@Nonnull final ResultSet result) {
+    this(result, 1);
+  }
+
+  /**
+   * @param column
+   *          the index of the column to read, starting at 1
+   */
+  public PrimitiveResultSetIterator(@Nonnull final ResultSet result, final int column) {
+    Preconditions.checkArgument(column > 0, "column must be positive");
+    this.result = result;
+    this.column = column;
+  }
+
+  public boolean hasNext() {
+    if (!alreadyHasNext) {
+      try {
+        alreadyHasNext = result.next();
+      }
+      catch (final SQLException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+    return alreadyHasNext;
+  }
+
+  public int nextInt() {
+    advance();
+    try {
+      final int value = result.getInt(column);
+      wasNull = result.wasNull();
+      return value;
+    }
+    catch (final SQLException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public long nextLong() {
+    advance();
+    try {
+      final long value = result.getLong(column);
+      wasNull = result.wasNull();
+      return value;
+    }
+    catch (final SQLException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public double nextDouble() {
+    advance();
+    try {
+      final double value = result.getDouble(column);
+      wasNull = result.wasNull();
+      return value;
+    }
+    catch (final SQLException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Whether the value most recently returned by {@link #nextInt()}, {@link #nextLong()} or {@link #nextDouble()} was
+   * SQL {@code NULL}.
+   */
+  public boolean wasNull() {
+    return wasNull;
+  }
+
+  public int fillInto(@Nonnull final int[] buffer) {
+    return fillInto(buffer, 0, buffer.length, null);
+  }
+
+  /**
+   * Reads up to {@code length} values into {@code buffer}, starting at {@code offset}.
+   *
+   * @param nulls
+   *          if not {@code null}, the bit for each position written is set if its value was SQL {@code NULL} and
+   *          cleared otherwise
+   * @return the number of values read, less than {@code length} only once the rows are exhausted
+   */
+  public int fillInto(@Nonnull final int[] buffer, final int offset, final int length, @Nullable final BitSet nulls) {
+    checkRange(buffer.length, offset, length);
+    int count = 0;
+    try {
+      for (; count < length && hasNext(); count++) {
+        alreadyHasNext = false;
+        buffer[offset + count] = result.getInt(column);
+        recordNull(nulls, offset + count);
+      }
+    }
+    catch (final SQLException e) {
+      throw Throwables.propagate(e);
+    }
+    return count;
+  }
+
+  public int fillInto(@Nonnull final long[] buffer) {
+    return fillInto(buffer, 0, buffer.length, null);
+  }
+
+  /**
+   * Reads up to {@code length} values into {@code buffer}, starting at {@code offset}.
+   *
+   * @param nulls
+   *          if not {@code null}, the bit for each position written is set if its value was SQL {@code NULL} and
+   *          cleared otherwise
+   * @return the number of values read, less than {@code length} only once the rows are exhausted
+   */
+  public int fillInto(@Nonnull final long[] buffer, final int offset, final int length, @Nullable final BitSet nulls) {
+    checkRange(buffer.length, offset, length);
+    int count = 0;
+    try {
+      for (; count < length && hasNext(); count++) {
+        alreadyHasNext = false;
+        buffer[offset + count] = result.getLong(column);
+        recordNull(nulls, offset + count);
+      }
+    }
+    catch (final SQLException e) {
+      throw Throwables.propagate(e);
+    }
+    return count;
+  }
+
+  public int fillInto(@Nonnull final double[] buffer) {
+    return fillInto(buffer, 0, buffer.length, null);
+  }
+
+  /**
+   * Reads up to {@code length} values into {@code buffer}, starting at {@code offset}.
+   *
+   * @param nulls
+   *          if not {@code null}, the bit for each position written is set if its value was SQL {@code NULL} and
+   *          cleared otherwise
+   * @return the number of values read, less than {@code length} only once the rows are exhausted
+   */
+  public int fillInto(@Nonnull final double[] buffer, final int offset, final int length,
+      @Nullable final BitSet nulls) {
+    checkRange(buffer.length, offset, length);
+    int count = 0;
+    try {
+      for (; count < length && hasNext(); count++) {
+        alreadyHasNext = false;
+        buffer[offset + count] = result.getDouble(column);
+        recordNull(nulls, offset + count);
+      }
+    }
+    catch (final SQLException e) {
+      throw Throwables.propagate(e);
+    }
+    return count;
+  }
+
+  private void advance() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    alreadyHasNext = false;
+  }
+
+  private void recordNull(@Nullable final BitSet nulls, final int index) throws SQLException {
+    if (null != nulls) {
+      nulls.set(index, result.wasNull());
+    }
+  }
+
+  private static void checkRange(final int bufferLength, final int offset, final int length) {
+    Preconditions.checkPositionIndexes(offset, offset + length, bufferLength);
+  }
+}
@@ -0,0 +1,170 @@
+package ca.cutterslade.utilities;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+/**
+ * An immutable view of properties sorted by key, for namespace queries. {@link #getNamespace(String)} returns the
+ * properties whose keys start with a prefix, with the prefix stripped, by binary searching for the range of keys
+ * sharing the prefix; the result is a view of the same sorted arrays, so a query costs {@code O(log n)} and visiting
+ * its {@code k} entries costs {@code O(k)}, however many keys are indexed. Namespaces may be queried in turn, so
+ * {@code index.getNamespace("db.").getNamespace("pool.")} is equivalent to {@code index.getNamespace("db.pool.")}.
+ */
+public final class PropertiesIndex extends AbstractMap<String, String> {
+
+  private final String[] keys;
+
+  private final String[] values;
+
+  private final int from;
+
+  private final int to;
+
+  private final int prefixLength;
+
+  private volatile EntrySet entrySet;
+
+  private PropertiesIndex(@Nonnull final String[] keys, @Nonnull final String[] values, final int from, final int to,
+      final int prefixLength) {
+    this.keys = keys;
+    this.values = values;
+    this.from = from;
+    this.to = to;
+    this.prefixLength = prefixLength;
+  }
+
+  public static PropertiesIndex of(@Nonnull final Map<String, String> properties) {
+    final String[] keys = properties.keySet().toArray(new String[properties.size()]);
+    Arrays.sort(keys);
+    final String[] values = new String[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      values[i] = Preconditions.checkNotNull(properties.get(keys[i]), "No value for %s", keys[i]);
+    }
+    return new PropertiesIndex(keys, values, 0, keys.length, 0);
+  }
+
+  /**
+   * Returns the properties whose keys start with the given prefix, with the prefix removed from their keys. Keys equal
+   * to the prefix appear with the empty string as their key.
+   */
+  public PropertiesIndex getNamespace(@Nonnull final String prefix) {
+    final int start = search(prefix, true, from, to);
+    return new PropertiesIndex(keys, values, start, search(prefix, false, start, to), prefixLength + prefix.length());
+  }
+
+  /**
+   * Returns the position of the first key, within the given range, which is not less than the given key, or which is
+   * greater than every key starting with it if {@code inclusive} is {@code false}.
+   */
+  private int search(@Nonnull final String key, final boolean inclusive, final int start, final int end) {
+    int low = start;
+    int high = end;
+    while (low < high) {
+      final int middle = low + high >>> 1;
+      final int comparison = compare(keys[middle], key);
+      if (comparison < 0 || !inclusive && 0 == comparison) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compares a key, without this view's prefix, to the given prefix; a key starting with the prefix compares equal.
+   */
+  private int compare(@Nonnull final String key, @Nonnull final String prefix) {
+    final int length = Math.min(key.length() - prefixLength, prefix.length());
+    int comparison = 0;
+    for (int i = 0; 0 == comparison && i < length; i++) {
+      comparison = key.charAt(prefixLength + i) - prefix.charAt(i);
+    }
+    return 0 == comparison && key.length() - prefixLength < prefix.length() ? -1 : comparison;
+  }
+
+  private int indexOf(@Nullable final Object key) {
+    int index = -1;
+    if (key instanceof String) {
+      final String string = (String) key;
+      final int position = search(string, true, from, to);
+      if (position < to && keys[position].length() - prefixLength == string.length()
+          && 0 == compare(keys[position], string)) {
+        index = position;
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public String get(@Nullable final Object key) {
+    final int index = indexOf(key);
+    return index < 0 ? null : values[index];
+  }
+
+  @Override
+  public boolean containsKey(@Nullable final Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return to - from;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return from == to;
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    EntrySet entries = entrySet;
+    if (null == entries) {
+      entries = new EntrySet();
+      entrySet = entries;
+    }
+    return entries;
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new AbstractIterator<Map.Entry<String, String>>() {
+
+        private int index = from;
+
+        @Override
+        protected Map.Entry<String, String> computeNext() {
+          final Map.Entry<String, String> next;
+          if (index < to) {
+            next = Maps.immutableEntry(keys[index].substring(prefixLength), values[index]);
+            index++;
+          }
+          else {
+            next = endOfData();
+          }
+          return next;
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+}
@@ -0,0 +1,288 @@
+package ca.cutterslade.utilities;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+
+/**
+ * Parses the {@code .properties} format accepted by {@link java.util.Properties#load(InputStream)}: ISO 8859-1 text,
+ * comment lines, line continuations, escapes including <code>&#92;uXXXX</code>, and keys separated from their values by
+ * <code>=</code>, <code>:</code> or whitespace. The entries are collected without passing through a
+ * {@link java.util.Properties}, and a key defined more than once takes its last value, as it would there.
+ * <p>
+ * {@code file:} resources are read through a {@link FileChannel}, memory mapped if they are large.
+ */
+final class PropertiesParser {
+
+  private static final Logger log = LoggerFactory.getLogger(PropertiesParser.class);
+
+  private static final long MAP_THRESHOLD = 64 * 1024;
+
+  private static final int INITIAL_LINE_LENGTH = 128;
+
+  private static final int HEX_DIGITS = 4;
+
+  private static final int DECIMAL_RADIX = 10;
+
+  private final ByteBuffer input;
+
+  private char[] line = new char[INITIAL_LINE_LENGTH];
+
+  private char[] converted = new char[INITIAL_LINE_LENGTH];
+
+  private PropertiesParser(@Nonnull final ByteBuffer input) {
+    this.input = input;
+  }
+
+  public static ImmutableMap<String, String> parse(@Nonnull final URL resource) throws IOException {
+    final File file = toFile(resource);
+    return parse(null == file ? readResource(resource) : readFile(file));
+  }
+
+  public static ImmutableMap<String, String> parse(@Nonnull final ByteBuffer input) {
+    return new PropertiesParser(input.duplicate()).parse();
+  }
+
+  private static File toFile(@Nonnull final URL resource) {
+    File file = null;
+    if ("file".equals(resource.getProtocol())) {
+      try {
+        file = new File(resource.toURI());
+      }
+      catch (final URISyntaxException e) {
+        log.debug("Reading {} as a stream", resource, e);
+      }
+      catch (final IllegalArgumentException e) {
+        log.debug("Reading {} as a stream", resource, e);
+      }
+    }
+    return file;
+  }
+
+  private static ByteBuffer readResource(@Nonnull final URL resource) throws IOException {
+    final InputStream stream = Resources.newInputStreamSupplier(resource).getInput();
+    try {
+      return ByteBuffer.wrap(ByteStreams.toByteArray(stream));
+    }
+    finally {
+      close(stream);
+    }
+  }
+
+  private static ByteBuffer readFile(@Nonnull final File file) throws IOException {
+    final FileInputStream stream = new FileInputStream(file);
+    try {
+      final FileChannel channel = stream.getChannel();
+      final long size = channel.size();
+      final ByteBuffer buffer;
+      if (size >= MAP_THRESHOLD) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      else {
+        buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+          continue;
+        }
+        buffer.flip();
+      }
+      return buffer;
+    }
+    finally {
+      close(stream);
+    }
+  }
+
+  private static void close(@Nonnull final InputStream stream) {
+    try {
+      stream.close();
+    }
+    catch (final IOException e) {
+      log.warn("Exception closing resource", e);
+    }
+  }
+
+  /**
+   * Collects the entries in a {@link java.util.LinkedHashMap} before copying them, rather than adding them to an
+   * {@link ImmutableMap.Builder}, which rejects a key added twice where a {@code .properties} file keeps its last
+   * value.
+   */
+  private ImmutableMap<String, String> parse() {
+    final Map<String, String> entries = Maps.newLinkedHashMap();
+    for (int limit = readLine(); limit >= 0; limit = readLine()) {
+      int keyLength = 0;
+      int valueStart = limit;
+      boolean hasSeparator = false;
+      boolean precedingBackslash = false;
+      while (keyLength < limit) {
+        final char c = line[keyLength];
+        if (('=' == c || ':' == c) && !precedingBackslash) {
+          valueStart = keyLength + 1;
+          hasSeparator = true;
+          break;
+        }
+        else if (isWhitespace(c) && !precedingBackslash) {
+          valueStart = keyLength + 1;
+          break;
+        }
+        precedingBackslash = '\\' == c && !precedingBackslash;
+        keyLength++;
+      }
+      while (valueStart < limit) {
+        final char c = line[valueStart];
+        if (!isWhitespace(c)) {
+          if (!hasSeparator && ('=' == c || ':' == c)) {
+            hasSeparator = true;
+          }
+          else {
+            break;
+          }
+        }
+        valueStart++;
+      }
+      entries.put(convert(0, keyLength), convert(valueStart, limit));
+    }
+    return ImmutableMap.copyOf(entries);
+  }
+
+  private static boolean isWhitespace(final char c) {
+    return ' ' == c || '\t' == c || '\f' == c;
+  }
+
+  /**
+   * Reads the next logical line into {@link #line}, dropping comments, blank lines, leading whitespace and line
+   * continuations as {@link java.util.Properties} does.
+   *
+   * @return the length of the line, or -1 at the end of the input
+   */
+  private int readLine() {
+    int length = 0;
+    boolean skipWhitespace = true;
+    boolean appendedLineBegin = false;
+    boolean precedingBackslash = false;
+    while (true) {
+      if (!input.hasRemaining()) {
+        return 0 == length ? -1 : precedingBackslash ? length - 1 : length;
+      }
+      final char c = (char) (input.get() & 0xff);
+      if (skipWhitespace) {
+        if (isWhitespace(c) || !appendedLineBegin && ('\r' == c || '\n' == c)) {
+          continue;
+        }
+        skipWhitespace = false;
+        appendedLineBegin = false;
+      }
+      if (0 == length && ('#' == c || '!' == c)) {
+        skipComment();
+        skipWhitespace = true;
+      }
+      else if ('\n' != c && '\r' != c) {
+        if (length == line.length) {
+          line = grow(line);
+        }
+        line[length++] = c;
+        precedingBackslash = '\\' == c && !precedingBackslash;
+      }
+      else if (0 == length) {
+        skipWhitespace = true;
+      }
+      else if (!input.hasRemaining() || !precedingBackslash) {
+        return precedingBackslash ? length - 1 : length;
+      }
+      else {
+        length--;
+        skipWhitespace = true;
+        appendedLineBegin = true;
+        precedingBackslash = false;
+        if ('\r' == c && '\n' == input.get(input.position())) {
+          input.get();
+        }
+      }
+    }
+  }
+
+  private void skipComment() {
+    while (input.hasRemaining()) {
+      final byte b = input.get();
+      if ('\n' == b || '\r' == b) {
+        break;
+      }
+    }
+  }
+
+  private static int hexDigit(final char c) {
+    final int digit;
+    if (c >= '0' && c <= '9') {
+      digit = c - '0';
+    }
+    else if (c >= 'a' && c <= 'f') {
+      digit = c - 'a' + DECIMAL_RADIX;
+    }
+    else if (c >= 'A' && c <= 'F') {
+      digit = c - 'A' + DECIMAL_RADIX;
+    }
+    else {
+      throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+    }
+    return digit;
+  }
+
+  private static char[] grow(@Nonnull final char[] chars) {
+    final char[] grown = new char[chars.length * 2];
+    System.arraycopy(chars, 0, grown, 0, chars.length);
+    return grown;
+  }
+
+  private String convert(final int start, final int end) {
+    if (converted.length < end - start) {
+      converted = new char[line.length];
+    }
+    int length = 0;
+    int offset = start;
+    while (offset < end) {
+      char c = line[offset++];
+      if ('\\' == c) {
+        c = line[offset++];
+        if ('u' == c) {
+          if (offset > end - HEX_DIGITS) {
+            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+          }
+          int value = 0;
+          for (int i = 0; i < HEX_DIGITS; i++) {
+            value = (value << 4) + hexDigit(line[offset++]);
+          }
+          c = (char) value;
+        }
+        else if ('t' == c) {
+          c = '\t';
+        }
+        else if ('r' == c) {
+          c = '\r';
+        }
+        else if ('n' == c) {
+          c = '\n';
+        }
+        else if ('f' == c) {
+          c = '\f';
+        }
+      }
+      converted[length++] = c;
+    }
+    return new String(converted, 0, length);
+  }
+}
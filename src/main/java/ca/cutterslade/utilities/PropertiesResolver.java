@@ -1,81 +1,267 @@
 package ca.cutterslade.utilities;
 
-import java.util.Collections;
-import java.util.List;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Enums;
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ComputationException;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class PropertiesResolver {
 
+  private static final Logger log = LoggerFactory.getLogger(PropertiesResolver.class);
+
+  /**
+   * The functions found for each class loader by name and argument count. A name which indicates no function is
+   * recorded as absent, so it is not looked for again. A function loaded by a class loader refers to it, so the
+   * functions of each loader are held softly as well as the loader weakly: a loader which is otherwise unreachable is
+   * collected, with its functions, once memory runs short, and functions cleared while it is in use are found again.
+   */
+  private static final ConcurrentMap<ClassLoader, ConcurrentMap<MethodKey, Optional<ComputeMethod>>> COMPUTE_METHODS =
+      new MapMaker().weakKeys().softValues().makeMap();
+
   private static final Pattern REPLACE_PATTERN = Pattern.compile("\\$\\{([^}{]+)\\}");
 
-  private static final Pattern REPLACE_KEY_PATTERN =
+  static final Pattern REPLACE_KEY_PATTERN =
       Pattern.compile("(\\$)?([^$}{:()]+)(?:\\(([^$}{()]+)\\))?(?::(.*))?");
 
-  private static final int REPLACE_KEY_PATTERN_COMPUTE_GROUP = 1;
+  static final int REPLACE_KEY_PATTERN_COMPUTE_GROUP = 1;
 
-  private static final int REPLACE_KEY_PATTERN_KEY_GROUP = 2;
+  static final int REPLACE_KEY_PATTERN_KEY_GROUP = 2;
 
-  private static final int REPLACE_KEY_PATTERN_ARGUMENTS_GROUP = 3;
+  static final int REPLACE_KEY_PATTERN_ARGUMENTS_GROUP = 3;
 
-  private static final int REPLACE_KEY_PATTERN_DEFAULT_GROUP = 4;
+  static final int REPLACE_KEY_PATTERN_DEFAULT_GROUP = 4;
 
-  private static final Pattern LITERAL_PATTERN = Pattern.compile("'([^}{$]+)'");
+  static final Pattern LITERAL_PATTERN = Pattern.compile("'([^}{$]+)'");
 
-  private final ImmutableMap<String, String> source;
+  private final Map<String, String> source;
 
   private final Map<String, String> resolved = Maps.newHashMap();
 
   private final Set<String> pending = Sets.newHashSet();
 
+  private final boolean compiled;
+
+  private final ComputationCache computations;
+
+  private final ResolutionListener listener;
+
+  /**
+   * Whether events are sent to the listener; when they are not, nothing is timed. Regular expression substitution is
+   * never traced.
+   */
+  private final boolean tracing;
+
+  /**
+   * The dependency depth of each evaluated key, kept only while tracing.
+   */
+  private final Map<String, Integer> depths = Maps.newHashMap();
+
+  private int evaluatedCount;
+
+  private int unresolvedCount;
+
+  private final PropertyTemplate.Context context = new PropertyTemplate.Context() {
+
+    @Override
+    public String getValue(final String key) {
+      return PropertiesResolver.this.getValue(key);
+    }
+
+    @Override
+    public String compute(final String function, final ImmutableList<String> arguments) {
+      final String result;
+      if (tracing) {
+        final long start = System.nanoTime();
+        result = computations.compute(function, arguments);
+        listener.functionCalled(function, System.nanoTime() - start);
+      }
+      else {
+        result = computations.compute(function, arguments);
+      }
+      return result;
+    }
+  };
+
+  /**
+   * Evaluates the keys a key depends on before the key itself, so that the values its template looks up have all been
+   * resolved and evaluating it never recurses.
+   */
+  private final DependencyOrder.Graph graph = new DependencyOrder.Graph() {
+
+    @Override
+    public PropertyTemplate getTemplate(final String key) {
+      final String value = resolved.containsKey(key) ? null : source.get(key);
+      return null == value ? null : PropertyTemplate.compile(value);
+    }
+
+    @Override
+    public void visit(final String key, final PropertyTemplate template) {
+      evaluatedCount++;
+      if (tracing) {
+        final long start = System.nanoTime();
+        resolved.put(key, template.resolve(context));
+        final long nanos = System.nanoTime() - start;
+        int depth = 0;
+        for (final String reference : template.getReferences()) {
+          final Integer referenceDepth = depths.get(reference);
+          if (null != referenceDepth) {
+            depth = Math.max(depth, referenceDepth + 1);
+          }
+        }
+        depths.put(key, depth);
+        unresolvedCount += template.countUnresolved(source);
+        listener.keyResolved(key, depth, nanos);
+      }
+      else {
+        resolved.put(key, template.resolve(context));
+      }
+    }
+  };
+
   public PropertiesResolver(@Nonnull final Map<String, String> properties) {
-    this.source = ImmutableMap.copyOf(properties);
+    this(properties, true);
+  }
+
+  /**
+   * @param compiled
+   *          {@code false} to substitute placeholders with the regular expressions rather than through
+   *          {@link PropertyTemplate}s, retained so that the two can be compared; unlike compiled resolution, this
+   *          recurses once per link of a reference chain
+   */
+  PropertiesResolver(@Nonnull final Map<String, String> properties, final boolean compiled) {
+    this(properties, compiled, new ComputationCache(), ResolutionListener.NONE);
+  }
+
+  /**
+   * @param computations
+   *          the cache of pure function results to use, which may be shared with other resolvers
+   */
+  public PropertiesResolver(@Nonnull final Map<String, String> properties,
+      @Nonnull final ComputationCache computations) {
+    this(properties, true, computations, ResolutionListener.NONE);
+  }
+
+  /**
+   * @param listener
+   *          receives the time taken to evaluate each key and call each function, and a summary when
+   *          {@link #getResolved()} completes
+   */
+  public PropertiesResolver(@Nonnull final Map<String, String> properties, @Nonnull final ResolutionListener listener) {
+    this(properties, true, new ComputationCache(), listener);
+  }
+
+  public PropertiesResolver(@Nonnull final Map<String, String> properties,
+      @Nonnull final ComputationCache computations, @Nonnull final ResolutionListener listener) {
+    this(properties, true, computations, listener);
+  }
+
+  private PropertiesResolver(@Nonnull final Map<String, String> properties, final boolean compiled,
+      @Nonnull final ComputationCache computations, @Nonnull final ResolutionListener listener) {
+    this.source = LayeredProperties.copyOf(properties);
+    this.compiled = compiled;
+    this.computations = Preconditions.checkNotNull(computations);
+    this.listener = Preconditions.checkNotNull(listener);
+    this.tracing = compiled && ResolutionListener.NONE != listener;
   }
 
   public PropertiesResolver(@Nonnull final Iterable<? extends Map<String, String>> sources) {
-    final List<Map<String, String>> sourceList = Lists.newArrayList(sources);
-    Collections.reverse(sourceList);
-    final Map<String, String> collected = Maps.newHashMap();
-    for (final Map<String, String> propSource : sourceList) {
-      collected.putAll(propSource);
-    }
-    source = ImmutableMap.copyOf(collected);
+    this(LayeredProperties.of(sources), true);
   }
 
+  /**
+   * Resolves every key. A {@link ResolutionListener} is told of the keys evaluated by this call only, and is not told
+   * of a call which evaluated none, as when every key was already resolved.
+   */
   public ImmutableMap<String, String> getResolved() {
+    final long start = tracing ? System.nanoTime() : 0;
+    final int evaluatedBefore = evaluatedCount;
+    final int unresolvedBefore = unresolvedCount;
     for (final String key : source.keySet()) {
       resolved.put(key, getValue(key));
     }
+    if (tracing && evaluatedCount > evaluatedBefore) {
+      listener.resolutionCompleted(evaluatedCount - evaluatedBefore, unresolvedCount - unresolvedBefore,
+          System.nanoTime() - start);
+    }
     return ImmutableMap.copyOf(resolved);
   }
 
+  /**
+   * Resolves a single key, evaluating only the keys it depends on. Values resolved by earlier calls are reused.
+   * 
+   * @return the resolved value, or {@code null} if the key is not defined
+   */
+  @Nullable
+  public String resolve(@Nonnull final String key) {
+    return getValue(Preconditions.checkNotNull(key));
+  }
+
+  /**
+   * Resolves the given keys, evaluating only the keys they depend on. Keys which are not defined are omitted from the
+   * result.
+   */
+  public ImmutableMap<String, String> resolveAll(@Nonnull final Iterable<String> keys) {
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (final String key : ImmutableSet.copyOf(keys)) {
+      final String value = resolve(key);
+      if (null != value) {
+        builder.put(key, value);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * The number of keys whose values have been evaluated by this resolver; each key is evaluated at most once.
+   */
+  public int getEvaluatedCount() {
+    return evaluatedCount;
+  }
+
+  public ComputationCache getComputations() {
+    return computations;
+  }
+
   private String getValue(@Nonnull final String key) {
     String value = resolved.get(key);
-    if (null == value) {
-      value = source.get(key);
-      if (null != value) {
+    if (null == value && source.containsKey(key)) {
+      if (compiled) {
+        DependencyOrder.visit(key, graph);
+        value = resolved.get(key);
+      }
+      else {
         Preconditions.checkState(pending.add(key), "Circular reference found on key %s", key);
-        final Matcher matcher = REPLACE_PATTERN.matcher(value);
-        final StringBuffer result = new StringBuffer();
-        while (matcher.find()) {
-          matcher.appendReplacement(result, Matcher.quoteReplacement(getReplacement(matcher.group(1))));
-        }
-        matcher.appendTail(result);
-        value = result.toString();
+        evaluatedCount++;
+        value = replace(source.get(key));
         resolved.put(key, value);
         pending.remove(key);
       }
@@ -83,6 +269,16 @@ public class PropertiesResolver {
     return value;
   }
 
+  private String replace(@Nonnull final String value) {
+    final Matcher matcher = REPLACE_PATTERN.matcher(value);
+    final StringBuffer result = new StringBuffer();
+    while (matcher.find()) {
+      matcher.appendReplacement(result, Matcher.quoteReplacement(getReplacement(matcher.group(1))));
+    }
+    matcher.appendTail(result);
+    return result.toString();
+  }
+
   private String getReplacement(@Nonnull final String replaceKey) {
     final Matcher matcher = REPLACE_KEY_PATTERN.matcher(replaceKey);
     Preconditions.checkArgument(matcher.matches(), "Replacement key %s does not match expected pattern %s",
@@ -126,65 +322,360 @@ public class PropertiesResolver {
 
   private String getComputedReplacement(@Nonnull final String methodName,
       @Nonnull final ImmutableList<String> arguments, @Nonnull final String dflt) {
-    final String result = getComputeMethod(methodName, arguments.size()).apply(arguments);
+    final String result = computations.compute(methodName, arguments);
     return null == result ? dflt : result;
   }
 
+  /**
+   * Finds the function indicated by a computed placeholder. Each resolver returns {@code null} if the name does not
+   * indicate a function of its kind; call targets are looked up and bound once, when the function is registered.
+   */
   private enum Resolver {
     BUILTIN_RESOLVER {
 
       @Override
-      public Function<Iterable<String>, String> getMethod(final String methodName, final int argumentCount) {
-        return Enums.valueOfFunction(BuiltinFunctions.class).apply(methodName.toUpperCase(Locale.US));
+      public ComputeMethod getMethod(final String methodName, final int argumentCount) {
+        return ComputeMethod.of(
+            Enums.valueOfFunction(BuiltinFunctions.class).apply(methodName.toUpperCase(Locale.US)));
       }
     },
+    /**
+     * A public class implementing {@link Function} with a public no argument constructor, such as
+     * {@code $com.acme.Upper(x)}. One instance is created and shared.
+     */
     FUNCTION_CLASS_RESOLVER {
 
       @Override
-      public Function<Iterable<String>, String> getMethod(final String methodName, final int argumentCount) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("getMethod has not been implemented");
+      public ComputeMethod getMethod(final String methodName, final int argumentCount) {
+        final Class<?> type = loadClass(methodName);
+        ComputeMethod method = null;
+        if (null != type && Function.class.isAssignableFrom(type) && !Modifier.isAbstract(type.getModifiers())) {
+          try {
+            method = ComputeMethod.of(LOOKUP.findConstructor(type, MethodType.methodType(void.class)).invoke());
+          }
+          catch (final NoSuchMethodException e) {
+            log.debug("{} has no public no argument constructor", type, e);
+          }
+          catch (final IllegalAccessException e) {
+            log.debug("{} has no public no argument constructor", type, e);
+          }
+          catch (final Throwable e) {
+            throw propagate(e);
+          }
+        }
+        return method;
       }
     },
+    /**
+     * A public static method of a public class, such as {@code $com.acme.Foo.bar(x)}, which returns a value and takes
+     * either one parameter per argument or a single array parameter, with parameter types to which a {@link String} may
+     * be assigned. The result is converted with {@link String#valueOf(Object)}.
+     */
     STATIC_METHOD_RESOLVER {
 
       @Override
-      public Function<Iterable<String>, String> getMethod(final String methodName, final int argumentCount) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("getMethod has not been implemented");
+      public ComputeMethod getMethod(final String methodName, final int argumentCount) {
+        final int dot = methodName.lastIndexOf('.');
+        final Class<?> type = dot < 0 ? null : loadClass(methodName.substring(0, dot));
+        final Method target = null == type ? null : findMethod(type, methodName.substring(dot + 1), argumentCount);
+        ComputeMethod method = null;
+        if (null != target) {
+          try {
+            final MethodHandle handle = LOOKUP.unreflect(target);
+            method = new ComputeMethod(new MethodHandleFunction(takesArray(target)
+                ? handle.asFixedArity().asType(MethodType.methodType(Object.class, Object[].class))
+                : handle.asType(MethodType.genericMethodType(argumentCount)).asSpreader(Object[].class,
+                    argumentCount), argumentCount), target.isAnnotationPresent(PureFunction.class));
+          }
+          catch (final IllegalAccessException e) {
+            log.debug("{} is not accessible", target, e);
+          }
+        }
+        return method;
       }
     },
+    /**
+     * A public static field of a public class holding a {@link Function}, such as {@code $com.acme.Foo.BAR(x)}. The
+     * field is read once, when the function is registered.
+     */
     STATIC_FIELD_RESOLVER {
 
       @Override
-      public Function<Iterable<String>, String> getMethod(final String methodName, final int argumentCount) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("getMethod has not been implemented");
+      public ComputeMethod getMethod(final String methodName, final int argumentCount) {
+        final int dot = methodName.lastIndexOf('.');
+        final Class<?> type = dot < 0 ? null : loadClass(methodName.substring(0, dot));
+        ComputeMethod method = null;
+        if (null != type) {
+          try {
+            final Field field = type.getField(methodName.substring(dot + 1));
+            if (Modifier.isStatic(field.getModifiers())) {
+              method = ComputeMethod.of(LOOKUP.unreflectGetter(field).invoke(), field);
+            }
+          }
+          catch (final NoSuchFieldException e) {
+            log.trace("No field {}", methodName, e);
+          }
+          catch (final IllegalAccessException e) {
+            log.debug("Field {} is not accessible", methodName, e);
+          }
+          catch (final Throwable e) {
+            throw propagate(e);
+          }
+        }
+        return method;
       }
     },
+    /**
+     * A constant of a public enum implementing {@link Function}, named without regard to case as built in functions
+     * are, such as {@code $com.acme.Functions.upper(x)}.
+     */
     ENUM_CONSTANT_RESOLVER {
 
       @Override
-      public Function<Iterable<String>, String> getMethod(final String methodName, final int argumentCount) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("getMethod has not been implemented");
+      public ComputeMethod getMethod(final String methodName, final int argumentCount) {
+        final int dot = methodName.lastIndexOf('.');
+        final Class<?> type = dot < 0 ? null : loadClass(methodName.substring(0, dot));
+        ComputeMethod method = null;
+        if (null != type && type.isEnum() && Function.class.isAssignableFrom(type)) {
+          final String name = methodName.substring(dot + 1).toUpperCase(Locale.US);
+          for (final Object constant : type.getEnumConstants()) {
+            if (((Enum<?>) constant).name().equals(name)) {
+              method = ComputeMethod.of(constant);
+            }
+          }
+        }
+        return method;
       }
     };
 
-    public abstract Function<Iterable<String>, String> getMethod(@Nonnull String methodName, int argumentCount);
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    @Nullable
+    public abstract ComputeMethod getMethod(@Nonnull String methodName, int argumentCount);
+
+    @Nullable
+    static Class<?> loadClass(@Nonnull final String name) {
+      final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+      Class<?> type = null;
+      for (final ClassLoader loader : ImmutableSet.of(null == contextLoader ? Resolver.class.getClassLoader()
+          : contextLoader, Resolver.class.getClassLoader())) {
+        if (null == type) {
+          try {
+            type = Class.forName(name, true, loader);
+          }
+          catch (final ClassNotFoundException e) {
+            log.trace("Class {} not found", name, e);
+          }
+        }
+      }
+      return null == type || !Modifier.isPublic(type.getModifiers()) ? null : type;
+    }
+
+    @Nullable
+    static Method findMethod(@Nonnull final Class<?> type, @Nonnull final String name, final int argumentCount) {
+      Method found = null;
+      for (final Method method : type.getMethods()) {
+        final Class<?>[] parameters = method.getParameterTypes();
+        if (method.getName().equals(name) && Modifier.isStatic(method.getModifiers())
+            && void.class != method.getReturnType() && (null == found || hasStringParameters(method, argumentCount))) {
+          boolean applicable = parameters.length == argumentCount;
+          for (int i = 0; applicable && i < parameters.length; i++) {
+            applicable = !parameters[i].isPrimitive() && parameters[i].isAssignableFrom(String.class);
+          }
+          if (!applicable) {
+            applicable = takesArray(method);
+          }
+          if (applicable) {
+            found = method;
+          }
+        }
+      }
+      return found;
+    }
+
+    /**
+     * Whether the method takes a single array parameter, varargs or not, whose elements may be {@link String}s, and so
+     * is passed all the arguments in one array.
+     */
+    static boolean takesArray(@Nonnull final Method method) {
+      final Class<?>[] parameters = method.getParameterTypes();
+      return 1 == parameters.length && parameters[0].isArray()
+          && parameters[0].getComponentType().isAssignableFrom(String.class);
+    }
+
+    static boolean hasStringParameters(@Nonnull final Method method, final int argumentCount) {
+      final Class<?>[] parameters = method.getParameterTypes();
+      boolean strings = parameters.length == argumentCount;
+      for (int i = 0; strings && i < parameters.length; i++) {
+        strings = String.class == parameters[i];
+      }
+      return strings;
+    }
+
+    static RuntimeException propagate(@Nonnull final Throwable e) {
+      Throwables.propagateIfPossible(e);
+      throw new ComputationException(e);
+    }
   }
 
-  private Function<Iterable<String>, String>
-      getComputeMethod(@Nonnull final String methodName, final int argumentCount) {
-    Function<Iterable<String>, String> method = null;
-    for (final Resolver resolver : Resolver.values()) {
-      method = resolver.getMethod(methodName, argumentCount);
-      if (null != method) {
-        break;
+  /**
+   * A function registered for computed placeholders, and whether it was declared {@link PureFunction pure}.
+   */
+  static final class ComputeMethod implements Function<Iterable<String>, String> {
+
+    private final Function<Iterable<String>, String> function;
+
+    private final boolean pure;
+
+    ComputeMethod(@Nonnull final Function<Iterable<String>, String> function, final boolean pure) {
+      this.function = function;
+      this.pure = pure;
+    }
+
+    /**
+     * Returns the given object as a compute method if it is a function, pure if its class, or the enum constant or
+     * fields it was read from, are annotated with {@link PureFunction}.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static ComputeMethod of(@Nullable final Object function, @Nonnull final AnnotatedElement... sources) {
+      ComputeMethod method = null;
+      if (function instanceof Function) {
+        boolean pure = function.getClass().isAnnotationPresent(PureFunction.class);
+        for (final AnnotatedElement source : sources) {
+          pure |= source.isAnnotationPresent(PureFunction.class);
+        }
+        if (function instanceof Enum) {
+          final Enum<?> constant = (Enum<?>) function;
+          try {
+            pure |= constant.getDeclaringClass().isAnnotationPresent(PureFunction.class)
+                || constant.getDeclaringClass().getField(constant.name()).isAnnotationPresent(PureFunction.class);
+          }
+          catch (final NoSuchFieldException e) {
+            throw new IllegalStateException("No field for enum constant " + constant, e);
+          }
+        }
+        method = new ComputeMethod((Function<Iterable<String>, String>) function, pure);
+      }
+      return method;
+    }
+
+    Function<Iterable<String>, String> getFunction() {
+      return function;
+    }
+
+    boolean isPure() {
+      return pure;
+    }
+
+    @Override
+    public String apply(final Iterable<String> input) {
+      return function.apply(input);
+    }
+  }
+
+  /**
+   * Invokes a static method through a handle of type {@code (Object[])Object}, passing the arguments as a
+   * {@code String[]} so that the same handle serves methods taking separate parameters and those taking an array.
+   */
+  private static final class MethodHandleFunction implements Function<Iterable<String>, String> {
+
+    private final MethodHandle handle;
+
+    private final int argumentCount;
+
+    MethodHandleFunction(@Nonnull final MethodHandle handle, final int argumentCount) {
+      this.handle = handle;
+      this.argumentCount = argumentCount;
+    }
+
+    @Override
+    public String apply(final Iterable<String> input) {
+      final Object[] arguments = Iterables.toArray(input, String.class);
+      Preconditions.checkArgument(arguments.length == argumentCount, "Expected %s arguments, found %s", argumentCount,
+          arguments.length);
+      final Object result;
+      try {
+        result = (Object) handle.invokeExact(arguments);
+      }
+      catch (final Throwable e) {
+        throw Resolver.propagate(e);
+      }
+      return null == result ? null : String.valueOf(result);
+    }
+  }
+
+  /**
+   * Identifies a registered function by the name used in a placeholder and the number of arguments it was given.
+   */
+  private static final class MethodKey {
+
+    private final String name;
+
+    private final int argumentCount;
+
+    MethodKey(@Nonnull final String name, final int argumentCount) {
+      this.name = name;
+      this.argumentCount = argumentCount;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      final boolean equal;
+      if (this == obj) {
+        equal = true;
+      }
+      else if (obj instanceof MethodKey) {
+        final MethodKey other = (MethodKey) obj;
+        equal = argumentCount == other.argumentCount && name.equals(other.name);
+      }
+      else {
+        equal = false;
+      }
+      return equal;
+    }
+
+    @Override
+    public int hashCode() {
+      return name.hashCode() * 31 + argumentCount;
+    }
+  }
+
+  /**
+   * Returns the function indicated by the given name when called with the given number of arguments. Functions are
+   * found by the {@link Resolver}s once per class loader, name and argument count, then taken from a registry shared by
+   * all resolvers; the class loader is the one classes are first loaded from, the thread's context class loader if it
+   * has one.
+   */
+  static ComputeMethod getComputeMethod(@Nonnull final String methodName, final int argumentCount) {
+    final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+    final ClassLoader loader = null == contextLoader ? Resolver.class.getClassLoader() : contextLoader;
+    ConcurrentMap<MethodKey, Optional<ComputeMethod>> methods = COMPUTE_METHODS.get(loader);
+    if (null == methods) {
+      methods = Maps.newConcurrentMap();
+      final ConcurrentMap<MethodKey, Optional<ComputeMethod>> existing = COMPUTE_METHODS.putIfAbsent(loader, methods);
+      if (null != existing) {
+        methods = existing;
+      }
+    }
+    final MethodKey key = new MethodKey(methodName, argumentCount);
+    Optional<ComputeMethod> method = methods.get(key);
+    if (null == method) {
+      ComputeMethod found = null;
+      for (final Resolver resolver : Resolver.values()) {
+        found = resolver.getMethod(methodName, argumentCount);
+        if (null != found) {
+          break;
+        }
+      }
+      method = Optional.fromNullable(found);
+      final Optional<ComputeMethod> registered = methods.putIfAbsent(key, method);
+      if (null != registered) {
+        method = registered;
       }
     }
-    Preconditions.checkArgument(null != method, "Could not resolve method indicated by '%s'", methodName);
-    return method;
+    Preconditions.checkArgument(method.isPresent(), "Could not resolve method indicated by '%s'", methodName);
+    return method.get();
   }
 
 }
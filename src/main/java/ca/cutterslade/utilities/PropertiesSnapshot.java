@@ -0,0 +1,274 @@
+package ca.cutterslade.utilities;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * An immutable set of resolved properties which remembers, for every key, which keys reference it either directly or
+ * as a function argument. {@link #update(Map)} and {@link #derive(Map)} use that index to evaluate only the keys
+ * affected by a change. An updated snapshot shares the unchanged entries of the one it was derived from through
+ * {@link OverlayMap}s, so an update costs time proportional to the keys it affects rather than to the size of the
+ * snapshot.
+ */
+public final class PropertiesSnapshot {
+
+  private static final PropertiesSnapshot EMPTY = new PropertiesSnapshot(OverlayMap.of(
+      ImmutableMap.<String, String> of()), OverlayMap.of(ImmutableMap.<String, PropertyTemplate> of()),
+      OverlayMap.of(ImmutableMap.<String, String> of()),
+      OverlayMap.of(ImmutableMap.<String, ImmutableSet<String>> of()));
+
+  private final OverlayMap<String, String> source;
+
+  private final OverlayMap<String, PropertyTemplate> templates;
+
+  private final OverlayMap<String, String> resolved;
+
+  private final OverlayMap<String, ImmutableSet<String>> dependents;
+
+  private PropertiesSnapshot(@Nonnull final OverlayMap<String, String> source,
+      @Nonnull final OverlayMap<String, PropertyTemplate> templates, @Nonnull final OverlayMap<String, String> resolved,
+      @Nonnull final OverlayMap<String, ImmutableSet<String>> dependents) {
+    this.source = source;
+    this.templates = templates;
+    this.resolved = resolved;
+    this.dependents = dependents;
+  }
+
+  public static PropertiesSnapshot of(@Nonnull final Map<String, String> properties) {
+    return EMPTY.update(properties).getSnapshot();
+  }
+
+  /**
+   * The unresolved values, as an immutable map.
+   */
+  public Map<String, String> getSource() {
+    return source;
+  }
+
+  /**
+   * The resolved values, as an immutable map.
+   */
+  public Map<String, String> getResolved() {
+    return resolved;
+  }
+
+  /**
+   * The keys which reference the given key, directly or as a function argument. The key need not be defined.
+   */
+  public ImmutableSet<String> getDependents(@Nonnull final String key) {
+    final ImmutableSet<String> keys = dependents.get(key);
+    return null == keys ? ImmutableSet.<String> of() : keys;
+  }
+
+  /**
+   * Applies changed source values, re-evaluating only the changed keys and the keys which depend on them.
+   *
+   * @param changed
+   *          the new source values; a {@code null} value removes the key
+   */
+  public Update update(@Nonnull final Map<String, String> changed) {
+    final Map<String, String> sourceChanges = Maps.newHashMap();
+    final Map<String, PropertyTemplate> templateChanges = Maps.newHashMap();
+    final Map<String, Set<String>> newDependents = Maps.newHashMap();
+    final Set<String> changedSources = Sets.newHashSet();
+    for (final Map.Entry<String, String> entry : changed.entrySet()) {
+      final String key = Preconditions.checkNotNull(entry.getKey());
+      final String value = entry.getValue();
+      if (!Objects.equal(source.get(key), value)) {
+        changedSources.add(key);
+        final PropertyTemplate old = templates.get(key);
+        if (null != old) {
+          for (final String reference : old.getReferences()) {
+            mutableDependents(newDependents, reference).remove(key);
+          }
+        }
+        if (null == value) {
+          sourceChanges.put(key, null);
+          templateChanges.put(key, null);
+        }
+        else {
+          final PropertyTemplate template = PropertyTemplate.compile(value);
+          sourceChanges.put(key, value);
+          templateChanges.put(key, template);
+          for (final String reference : template.getReferences()) {
+            mutableDependents(newDependents, reference).add(key);
+          }
+        }
+      }
+    }
+    final Update update;
+    if (changedSources.isEmpty()) {
+      update = new Update(this, ImmutableSet.<String> of());
+    }
+    else {
+      final Map<String, ImmutableSet<String>> dependentChanges = Maps.newHashMap();
+      for (final Map.Entry<String, Set<String>> entry : newDependents.entrySet()) {
+        dependentChanges.put(entry.getKey(), entry.getValue().isEmpty() ? null : ImmutableSet.copyOf(entry.getValue()));
+      }
+      final OverlayMap<String, PropertyTemplate> newTemplates = templates.with(templateChanges);
+      final OverlayMap<String, ImmutableSet<String>> dependentIndex = dependents.with(dependentChanges);
+      final Evaluation evaluation =
+          new Evaluation(newTemplates, affected(changedSources, dependentIndex), resolved);
+      final Map<String, String> resolvedChanges = Maps.newHashMap();
+      for (final String key : evaluation.affected) {
+        final String value = evaluation.getValue(key);
+        if (!Objects.equal(resolved.get(key), value)) {
+          resolvedChanges.put(key, value);
+        }
+      }
+      update = new Update(new PropertiesSnapshot(source.with(sourceChanges), newTemplates,
+          resolved.with(resolvedChanges), dependentIndex), ImmutableSet.copyOf(resolvedChanges.keySet()));
+    }
+    return update;
+  }
+
+  /**
+   * Resolves the given overlay on top of this snapshot's source, as a tenant view of a shared base. Only the overlaid
+   * keys and the keys which depend on them are evaluated; the result is a view whose top layer holds just the values
+   * which differ from this snapshot, above this snapshot's resolved map, so its size grows with the overlay rather
+   * than with the base.
+   */
+  public LayeredProperties derive(@Nonnull final Map<String, String> overlay) {
+    final Map<String, PropertyTemplate> overlaid = Maps.newHashMap();
+    for (final Map.Entry<String, String> entry : overlay.entrySet()) {
+      final String value = Preconditions.checkNotNull(entry.getValue());
+      if (!value.equals(source.get(entry.getKey()))) {
+        overlaid.put(Preconditions.checkNotNull(entry.getKey()), PropertyTemplate.compile(value));
+      }
+    }
+    final Set<String> affected = affected(overlaid.keySet(), dependents);
+    final Map<String, PropertyTemplate> affectedTemplates = Maps.newHashMapWithExpectedSize(affected.size());
+    for (final String key : affected) {
+      final PropertyTemplate template = overlaid.containsKey(key) ? overlaid.get(key) : templates.get(key);
+      if (null != template) {
+        affectedTemplates.put(key, template);
+      }
+    }
+    final Evaluation evaluation = new Evaluation(affectedTemplates, affected, resolved);
+    final ImmutableMap.Builder<String, String> changed = ImmutableMap.builder();
+    for (final String key : affectedTemplates.keySet()) {
+      final String value = evaluation.getValue(key);
+      if (!value.equals(resolved.get(key))) {
+        changed.put(key, value);
+      }
+    }
+    return LayeredProperties.of(changed.build(), resolved);
+  }
+
+  private Set<String> mutableDependents(@Nonnull final Map<String, Set<String>> newDependents,
+      @Nonnull final String key) {
+    Set<String> keys = newDependents.get(key);
+    if (null == keys) {
+      keys = Sets.newHashSet(getDependents(key));
+      newDependents.put(key, keys);
+    }
+    return keys;
+  }
+
+  private static Set<String> affected(@Nonnull final Set<String> changedSources,
+      @Nonnull final Map<String, ImmutableSet<String>> dependentIndex) {
+    final Set<String> affected = Sets.newHashSet(changedSources);
+    final Deque<String> queue = new ArrayDeque<String>(changedSources);
+    while (!queue.isEmpty()) {
+      final ImmutableSet<String> keys = dependentIndex.get(queue.remove());
+      if (null != keys) {
+        for (final String key : keys) {
+          if (affected.add(key)) {
+            queue.add(key);
+          }
+        }
+      }
+    }
+    return affected;
+  }
+
+  public static final class Update {
+
+    private final PropertiesSnapshot snapshot;
+
+    private final ImmutableSet<String> changedKeys;
+
+    Update(@Nonnull final PropertiesSnapshot snapshot, @Nonnull final ImmutableSet<String> changedKeys) {
+      this.snapshot = snapshot;
+      this.changedKeys = changedKeys;
+    }
+
+    public PropertiesSnapshot getSnapshot() {
+      return snapshot;
+    }
+
+    /**
+     * The keys whose resolved values were added, removed or changed by the update.
+     */
+    public ImmutableSet<String> getChangedKeys() {
+      return changedKeys;
+    }
+  }
+
+  /**
+   * Evaluates the affected keys in {@link DependencyOrder}, taking the values of all other keys from the previous
+   * snapshot.
+   */
+  private static final class Evaluation implements PropertyTemplate.Context, DependencyOrder.Graph {
+
+    private final Map<String, PropertyTemplate> templates;
+
+    private final Set<String> affected;
+
+    private final Map<String, String> previous;
+
+    private final Map<String, String> evaluated = Maps.newHashMap();
+
+    private final ComputationCache computations = new ComputationCache();
+
+    Evaluation(@Nonnull final Map<String, PropertyTemplate> templates, @Nonnull final Set<String> affected,
+        @Nonnull final Map<String, String> previous) {
+      this.templates = templates;
+      this.affected = affected;
+      this.previous = previous;
+    }
+
+    @Override
+    @Nullable
+    public String getValue(@Nonnull final String key) {
+      String value;
+      if (affected.contains(key)) {
+        DependencyOrder.visit(key, this);
+        value = evaluated.get(key);
+      }
+      else {
+        value = previous.get(key);
+      }
+      return value;
+    }
+
+    @Override
+    @Nullable
+    public PropertyTemplate getTemplate(@Nonnull final String key) {
+      return affected.contains(key) && !evaluated.containsKey(key) ? templates.get(key) : null;
+    }
+
+    @Override
+    public void visit(@Nonnull final String key, @Nonnull final PropertyTemplate template) {
+      evaluated.put(key, template.resolve(this));
+    }
+
+    @Override
+    public String compute(@Nonnull final String function, @Nonnull final ImmutableList<String> arguments) {
+      return computations.compute(function, arguments);
+    }
+  }
+}
@@ -1,25 +1,17 @@
 package ca.cutterslade.utilities;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.Map;
-import java.util.Properties;
 
 import javax.annotation.Nonnull;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
-import com.google.common.io.InputSupplier;
 import com.google.common.io.Resources;
 
 public final class PropertiesUtils {
 
-  private static final Logger log = LoggerFactory.getLogger(PropertiesUtils.class);
-
   private PropertiesUtils() {
     throw new UnsupportedOperationException();
   }
@@ -34,47 +26,93 @@ public final class PropertiesUtils {
   }
 
   public static ImmutableMap<String, String> loadProperties(@Nonnull final URL resource) throws IOException {
-    final InputSupplier<InputStream> inputSupplier = Resources.newInputStreamSupplier(resource);
-    final Properties properties = new Properties();
-    final InputStream stream = inputSupplier.getInput();
-    try {
-      properties.load(stream);
-    }
-    finally {
-      try {
-        stream.close();
-      }
-      catch (final IOException e) {
-        log.warn("Exception closing resource", e);
-      }
-    }
-    return Maps.fromProperties(properties);
+    return PropertiesParser.parse(resource);
   }
 
+  /**
+   * Loads the given resource, reporting the time taken to the listener.
+   */
+  public static ImmutableMap<String, String> loadProperties(@Nonnull final URL resource,
+      @Nonnull final ResolutionListener listener) throws IOException {
+    final long start = System.nanoTime();
+    final ImmutableMap<String, String> properties = PropertiesParser.parse(resource);
+    listener.propertiesLoaded(resource, properties.size(), System.nanoTime() - start);
+    return properties;
+  }
+
+  /**
+   * Loads and resolves the given resources, as {@link #resolveProperties(Iterable)} would, through a binary snapshot
+   * file. The snapshot is used only while the content of every resource is unchanged; otherwise it is rewritten.
+   */
+  public static Map<String, String> loadResolvedProperties(@Nonnull final File snapshot,
+      @Nonnull final Iterable<URL> resources) throws IOException {
+    return MappedProperties.load(snapshot, resources);
+  }
+
+  /**
+   * A copy of the system properties with {@code sys.} prepended to their names.
+   */
   public static ImmutableMap<String, String> systemProperties() {
-    return prefixKeys("sys", Maps.fromProperties(System.getProperties()));
+    return ImmutableMap.copyOf(systemPropertiesView());
   }
 
+  /**
+   * A copy of the environment variables with {@code env.} prepended to their names.
+   */
   public static ImmutableMap<String, String> environmentProperties() {
-    return prefixKeys("env", System.getenv());
+    return ImmutableMap.copyOf(environmentPropertiesView());
+  }
+
+  /**
+   * The system properties with {@code sys.} prepended to their names, as a view of {@link System#getProperties()}
+   * rather than a copy. {@link LayeredProperties} and resolvers use the view without copying it.
+   */
+  public static Map<String, String> systemPropertiesView() {
+    return new PrefixedProperties("sys.", System.getProperties());
   }
 
-  private static ImmutableMap<String, String> prefixKeys(@Nonnull final String prefix,
-      @Nonnull final Map<String, String> map) {
-    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
-    for (final Map.Entry<String, String> entry : map.entrySet()) {
-      builder.put(prefix + '.' + entry.getKey(), entry.getValue());
-    }
-    return builder.build();
+  /**
+   * The environment variables with {@code env.} prepended to their names, as a view of {@link System#getenv()} rather
+   * than a copy. {@link LayeredProperties} and resolvers use the view without copying it.
+   */
+  public static Map<String, String> environmentPropertiesView() {
+    return new PrefixedProperties("env.", System.getenv());
+  }
+
+  /**
+   * Indexes the given properties, typically resolved ones, for namespace queries with
+   * {@link PropertiesIndex#getNamespace(String)}.
+   */
+  public static PropertiesIndex indexProperties(@Nonnull final Map<String, String> properties) {
+    return PropertiesIndex.of(properties);
   }
 
   public static ImmutableMap<String, String> resolveProperties(@Nonnull final Map<String, String> properties) {
     return new PropertiesResolver(properties).getResolved();
   }
 
+  /**
+   * Resolves the given properties, reporting the time taken to evaluate each key and call each function to the
+   * listener.
+   */
+  public static ImmutableMap<String, String> resolveProperties(@Nonnull final Map<String, String> properties,
+      @Nonnull final ResolutionListener listener) {
+    return new PropertiesResolver(properties, listener).getResolved();
+  }
+
   public static ImmutableMap<String, String> resolveProperties(
       @Nonnull final Iterable<? extends Map<String, String>> properties) {
     return new PropertiesResolver(properties).getResolved();
   }
 
+  public static ImmutableMap<String, String> resolvePropertiesInParallel(
+      @Nonnull final Map<String, String> properties) {
+    return new ParallelPropertiesResolver(properties).getResolved();
+  }
+
+  public static ImmutableMap<String, String> resolvePropertiesInParallel(
+      @Nonnull final Iterable<? extends Map<String, String>> properties) {
+    return new ParallelPropertiesResolver(properties).getResolved();
+  }
+
 }
@@ -0,0 +1,310 @@
+package ca.cutterslade.utilities;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import static ca.cutterslade.utilities.PropertiesResolver.LITERAL_PATTERN;
+import static ca.cutterslade.utilities.PropertiesResolver.REPLACE_KEY_PATTERN;
+import static ca.cutterslade.utilities.PropertiesResolver.REPLACE_KEY_PATTERN_ARGUMENTS_GROUP;
+import static ca.cutterslade.utilities.PropertiesResolver.REPLACE_KEY_PATTERN_COMPUTE_GROUP;
+import static ca.cutterslade.utilities.PropertiesResolver.REPLACE_KEY_PATTERN_DEFAULT_GROUP;
+import static ca.cutterslade.utilities.PropertiesResolver.REPLACE_KEY_PATTERN_KEY_GROUP;
+
+/**
+ * A property value parsed once into literal text and placeholder nodes. Parsing follows the same grammar as the
+ * regular expressions used by {@link PropertiesResolver}, so resolving a template yields the same text as the regex
+ * substitution does.
+ */
+final class PropertyTemplate {
+
+  interface Context {
+
+    @Nullable
+    String getValue(@Nonnull String key);
+
+    @Nullable
+    String compute(@Nonnull String function, @Nonnull ImmutableList<String> arguments);
+  }
+
+  private static final int PLACEHOLDER_SIZE_ESTIMATE = 16;
+
+  private final String source;
+
+  private final ImmutableList<Node> nodes;
+
+  private final ImmutableSet<String> references;
+
+  private final int sizeEstimate;
+
+  private PropertyTemplate(@Nonnull final String source, @Nonnull final ImmutableList<Node> nodes) {
+    this.source = source;
+    this.nodes = nodes;
+    final Set<String> keys = Sets.newLinkedHashSet();
+    int size = 0;
+    for (final Node node : nodes) {
+      node.collectReferences(keys);
+      size += node.sizeEstimate();
+    }
+    this.references = ImmutableSet.copyOf(keys);
+    this.sizeEstimate = size;
+  }
+
+  public static PropertyTemplate compile(@Nonnull final String value) {
+    final ImmutableList.Builder<Node> nodes = ImmutableList.builder();
+    int literalStart = 0;
+    int start = value.indexOf("${");
+    while (start >= 0) {
+      final int end = placeholderEnd(value, start + 2);
+      if (end < 0) {
+        start = value.indexOf("${", start + 1);
+      }
+      else {
+        if (start > literalStart) {
+          nodes.add(new Literal(value.substring(literalStart, start)));
+        }
+        nodes.add(placeholder(value.substring(start + 2, end)));
+        literalStart = end + 1;
+        start = value.indexOf("${", literalStart);
+      }
+    }
+    if (literalStart < value.length()) {
+      nodes.add(new Literal(value.substring(literalStart)));
+    }
+    return new PropertyTemplate(value, nodes.build());
+  }
+
+  /**
+   * Equivalent to matching {@code \$\{([^}{]+)\}} at a position already known to start with <code>${</code>: the
+   * placeholder ends at the first brace, which must be a closing brace.
+   */
+  private static int placeholderEnd(@Nonnull final String value, final int start) {
+    int end = start;
+    while (end < value.length() && '{' != value.charAt(end) && '}' != value.charAt(end)) {
+      end++;
+    }
+    return end > start && end < value.length() && '}' == value.charAt(end) ? end : -1;
+  }
+
+  private static Node placeholder(@Nonnull final String replaceKey) {
+    final Matcher matcher = REPLACE_KEY_PATTERN.matcher(replaceKey);
+    final Node node;
+    if (!matcher.matches()) {
+      node = new Malformed("Replacement key " + replaceKey + " does not match expected pattern "
+          + REPLACE_KEY_PATTERN.pattern());
+    }
+    else if (null == matcher.group(REPLACE_KEY_PATTERN_COMPUTE_GROUP)) {
+      node = new Reference(matcher.group(REPLACE_KEY_PATTERN_KEY_GROUP),
+          matcher.group(REPLACE_KEY_PATTERN_DEFAULT_GROUP), replaceKey);
+    }
+    else {
+      final String arguments = matcher.group(REPLACE_KEY_PATTERN_ARGUMENTS_GROUP);
+      if (null == arguments) {
+        node = new Malformed("Computed replacement " + replaceKey + " has no argument list");
+      }
+      else {
+        node = new Computed(matcher.group(REPLACE_KEY_PATTERN_KEY_GROUP), arguments(arguments),
+            matcher.group(REPLACE_KEY_PATTERN_DEFAULT_GROUP));
+      }
+    }
+    return node;
+  }
+
+  private static ImmutableList<Node> arguments(@Nonnull final String arguments) {
+    final ImmutableList.Builder<Node> builder = ImmutableList.builder();
+    for (final String argument : arguments.split(",")) {
+      final Matcher matcher = LITERAL_PATTERN.matcher(argument);
+      builder.add(matcher.matches() ? new Literal(matcher.group(1)) : placeholder(argument));
+    }
+    return builder.build();
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public boolean isConstant() {
+    return nodes.isEmpty() || 1 == nodes.size() && nodes.get(0) instanceof Literal;
+  }
+
+  /**
+   * The keys referenced by this template, including those used as function arguments, in order of appearance.
+   */
+  public ImmutableSet<String> getReferences() {
+    return references;
+  }
+
+  /**
+   * The number of placeholders which resolving this template leaves in place: references without a default to keys
+   * not among the given defined keys.
+   */
+  public int countUnresolved(@Nonnull final Map<String, ?> defined) {
+    int count = 0;
+    for (final Node node : nodes) {
+      count += node.countUnresolved(defined);
+    }
+    return count;
+  }
+
+  public String resolve(@Nonnull final Context context) {
+    final String result;
+    if (isConstant()) {
+      result = source;
+    }
+    else {
+      final StringBuilder builder = new StringBuilder(sizeEstimate);
+      for (final Node node : nodes) {
+        builder.append(node.evaluate(context));
+      }
+      result = builder.toString();
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return source;
+  }
+
+  private abstract static class Node {
+
+    abstract String evaluate(@Nonnull Context context);
+
+    void collectReferences(@Nonnull final Set<String> keys) {
+      // most nodes reference nothing
+    }
+
+    int countUnresolved(@Nonnull final Map<String, ?> defined) {
+      return 0;
+    }
+
+    int sizeEstimate() {
+      return PLACEHOLDER_SIZE_ESTIMATE;
+    }
+  }
+
+  private static final class Literal extends Node {
+
+    private final String text;
+
+    Literal(@Nonnull final String text) {
+      this.text = text;
+    }
+
+    @Override
+    String evaluate(@Nonnull final Context context) {
+      return text;
+    }
+
+    @Override
+    int sizeEstimate() {
+      return text.length();
+    }
+  }
+
+  private static final class Reference extends Node {
+
+    private final String key;
+
+    private final String dflt;
+
+    private final String unresolved;
+
+    Reference(@Nonnull final String key, @Nullable final String dflt, @Nonnull final String replaceKey) {
+      this.key = key;
+      this.dflt = dflt;
+      this.unresolved = "${" + replaceKey + "}";
+    }
+
+    @Override
+    String evaluate(@Nonnull final Context context) {
+      final String value = context.getValue(key);
+      final String result;
+      if (null != value) {
+        result = value;
+      }
+      else if (null != dflt) {
+        result = dflt;
+      }
+      else {
+        result = unresolved;
+      }
+      return result;
+    }
+
+    @Override
+    void collectReferences(@Nonnull final Set<String> keys) {
+      keys.add(key);
+    }
+
+    @Override
+    int countUnresolved(@Nonnull final Map<String, ?> defined) {
+      return null == dflt && !defined.containsKey(key) ? 1 : 0;
+    }
+  }
+
+  private static final class Computed extends Node {
+
+    private final String function;
+
+    private final ImmutableList<Node> arguments;
+
+    private final String dflt;
+
+    Computed(@Nonnull final String function, @Nonnull final ImmutableList<Node> arguments,
+        @Nullable final String dflt) {
+      this.function = function;
+      this.arguments = arguments;
+      this.dflt = dflt;
+    }
+
+    @Override
+    String evaluate(@Nonnull final Context context) {
+      final ImmutableList.Builder<String> builder = ImmutableList.builder();
+      for (final Node argument : arguments) {
+        builder.add(argument.evaluate(context));
+      }
+      final String result = context.compute(function, builder.build());
+      return Preconditions.checkNotNull(null == result ? dflt : result,
+          "Function %s produced no value and no default was given", function);
+    }
+
+    @Override
+    void collectReferences(@Nonnull final Set<String> keys) {
+      for (final Node argument : arguments) {
+        argument.collectReferences(keys);
+      }
+    }
+
+    @Override
+    int countUnresolved(@Nonnull final Map<String, ?> defined) {
+      int count = 0;
+      for (final Node argument : arguments) {
+        count += argument.countUnresolved(defined);
+      }
+      return count;
+    }
+  }
+
+  private static final class Malformed extends Node {
+
+    private final String message;
+
+    Malformed(@Nonnull final String message) {
+      this.message = message;
+    }
+
+    @Override
+    String evaluate(@Nonnull final Context context) {
+      throw new IllegalArgumentException(message);
+    }
+  }
+}
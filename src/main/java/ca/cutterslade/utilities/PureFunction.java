@@ -0,0 +1,18 @@
+package ca.cutterslade.utilities;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a function whose result depends only on its arguments, so that a {@link ComputationCache} may reuse the result
+ * of an earlier call with the same arguments. May be placed on a function class, on a static method, or on a static
+ * field or enum constant holding a function.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.FIELD, ElementType.METHOD })
+public @interface PureFunction {
+}
@@ -0,0 +1,351 @@
+package ca.cutterslade.utilities;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Resolved properties loaded from {@code .properties} files which are reloaded when the files change. The directories
+ * holding the files are watched with a {@link WatchService}; a burst of changes is collected until no change has been
+ * seen for the debounce interval, then only the changed files are parsed again and only the affected keys are
+ * evaluated again, through {@link PropertiesSnapshot#update(Map)}. A watched directory which is deleted is checked
+ * for again every {@link #REWATCH_MILLIS} milliseconds, and watched again once it reappears.
+ * <p>
+ * The current {@link PropertiesSnapshot} is published through an {@link AtomicReference}, so readers never block and
+ * always see a complete set of resolved properties. {@link Listener}s are called on the watching thread after each
+ * reload which changed any resolved value.
+ */
+public final class ReloadingProperties implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReloadingProperties.class);
+
+  public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+  public static final long REWATCH_MILLIS = 1000;
+
+  public interface Listener {
+
+    /**
+     * @param properties
+     *          the newly published properties
+     * @param changedKeys
+     *          the keys whose resolved values were added, removed or changed
+     */
+    void propertiesChanged(@Nonnull ReloadingProperties properties, @Nonnull ImmutableSet<String> changedKeys);
+  }
+
+  private final ImmutableList<Path> files;
+
+  private final long debounceMillis;
+
+  private final WatchService watchService;
+
+  private final Map<Path, ImmutableMap<String, String>> parsed = Maps.newHashMap();
+
+  /**
+   * Directories which can no longer be watched, as they have been deleted; only used by the watching thread.
+   */
+  private final Set<Path> unwatched = Sets.newLinkedHashSet();
+
+  private final AtomicReference<PropertiesSnapshot> snapshot = new AtomicReference<PropertiesSnapshot>();
+
+  private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+  private final Thread watcher;
+
+  private ReloadingProperties(@Nonnull final ImmutableList<Path> files, final long debounceMillis)
+      throws IOException {
+    this.files = files;
+    this.debounceMillis = debounceMillis;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    try {
+      for (final Path directory : directories(files)) {
+        register(directory);
+      }
+      for (final Path file : files) {
+        parsed.put(file, parse(file, ImmutableMap.<String, String> of()));
+      }
+      snapshot.set(PropertiesSnapshot.of(source()));
+    }
+    catch (final IOException e) {
+      watchService.close();
+      throw e;
+    }
+    this.watcher = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        watch();
+      }
+    }, "ReloadingProperties " + files);
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  /**
+   * @param files
+   *          the files in priority order, highest first
+   */
+  public static ReloadingProperties open(@Nonnull final Iterable<File> files) throws IOException {
+    return open(files, DEFAULT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param files
+   *          the files in priority order, highest first
+   * @param debounce
+   *          how long the files must be left unchanged before they are reloaded
+   */
+  public static ReloadingProperties open(@Nonnull final Iterable<File> files, final long debounce,
+      @Nonnull final TimeUnit unit) throws IOException {
+    Preconditions.checkArgument(debounce >= 0, "debounce must not be negative");
+    final ImmutableList.Builder<Path> paths = ImmutableList.builder();
+    for (final File file : files) {
+      paths.add(file.getAbsoluteFile().toPath());
+    }
+    return new ReloadingProperties(paths.build(), unit.toMillis(debounce));
+  }
+
+  /**
+   * The most recently published resolved properties.
+   */
+  public Map<String, String> getResolved() {
+    return snapshot.get().getResolved();
+  }
+
+  public PropertiesSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  public void addListener(@Nonnull final Listener listener) {
+    listeners.add(Preconditions.checkNotNull(listener));
+  }
+
+  public void removeListener(@Nonnull final Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Stops watching the files and waits for the watching thread to finish, unless called from a listener on that
+   * thread; the last published properties remain available.
+   */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+    watcher.interrupt();
+    if (Thread.currentThread() != watcher) {
+      Uninterruptibles.joinUninterruptibly(watcher);
+    }
+  }
+
+  private void register(@Nonnull final Path directory) throws IOException {
+    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+        StandardWatchEventKinds.ENTRY_DELETE);
+  }
+
+  private static Set<Path> directories(@Nonnull final Iterable<Path> files) {
+    final Set<Path> directories = Sets.newLinkedHashSet();
+    for (final Path file : files) {
+      directories.add(file.getParent());
+    }
+    return directories;
+  }
+
+  /**
+   * Parses the given file, returning no properties if it does not exist and the previous properties if it cannot be
+   * read, as may happen while it is being rewritten.
+   */
+  private static ImmutableMap<String, String> parse(@Nonnull final Path file,
+      @Nonnull final ImmutableMap<String, String> previous) {
+    ImmutableMap<String, String> properties;
+    if (file.toFile().isFile()) {
+      try {
+        properties = PropertiesParser.parse(file.toUri().toURL());
+      }
+      catch (final IOException e) {
+        log.warn("Could not read {}, keeping its previous properties", file, e);
+        properties = previous;
+      }
+      catch (final IllegalArgumentException e) {
+        log.warn("Could not parse {}, keeping its previous properties", file, e);
+        properties = previous;
+      }
+    }
+    else {
+      properties = ImmutableMap.of();
+    }
+    return properties;
+  }
+
+  private LayeredProperties source() {
+    final ImmutableList.Builder<Map<String, String>> layers = ImmutableList.builder();
+    for (final Path file : files) {
+      layers.add(parsed.get(file));
+    }
+    return LayeredProperties.of(layers.build());
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        final Set<Path> changed = Sets.newHashSet();
+        rewatch(changed);
+        WatchKey key;
+        if (!changed.isEmpty()) {
+          key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        else if (unwatched.isEmpty()) {
+          key = watchService.take();
+        }
+        else {
+          key = watchService.poll(REWATCH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        while (null != key) {
+          collect(key, changed);
+          key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        if (!changed.isEmpty()) {
+          reload(changed);
+        }
+      }
+    }
+    catch (final ClosedWatchServiceException e) {
+      log.debug("Stopped watching {}", files);
+    }
+    catch (final InterruptedException e) {
+      log.debug("Stopped watching {}", files);
+    }
+  }
+
+  /**
+   * Watches again any deleted directories which have reappeared, treating the files in them as changed.
+   */
+  private void rewatch(@Nonnull final Set<Path> changed) {
+    for (final Iterator<Path> iterator = unwatched.iterator(); iterator.hasNext();) {
+      final Path directory = iterator.next();
+      if (directory.toFile().isDirectory()) {
+        try {
+          register(directory);
+          iterator.remove();
+          changed.addAll(filesIn(directory));
+          log.info("Watching {} again", directory);
+        }
+        catch (final IOException e) {
+          log.debug("Could not watch {} yet", directory, e);
+        }
+      }
+    }
+  }
+
+  private Set<Path> filesIn(@Nonnull final Path directory) {
+    final Set<Path> contained = Sets.newHashSet();
+    for (final Path file : files) {
+      if (directory.equals(file.getParent())) {
+        contained.add(file);
+      }
+    }
+    return contained;
+  }
+
+  private void collect(@Nonnull final WatchKey key, @Nonnull final Set<Path> changed) {
+    final Path directory = (Path) key.watchable();
+    for (final WatchEvent<?> event : key.pollEvents()) {
+      if (StandardWatchEventKinds.OVERFLOW == event.kind()) {
+        changed.addAll(files);
+      }
+      else {
+        final Path file = directory.resolve((Path) event.context());
+        if (parsed.containsKey(file)) {
+          changed.add(file);
+        }
+      }
+    }
+    if (!key.reset()) {
+      log.warn("Can no longer watch {}, will watch it again if it reappears", directory);
+      unwatched.add(directory);
+      changed.addAll(filesIn(directory));
+    }
+  }
+
+  /**
+   * Parses the changed files again and compares the source values of only the keys they defined before or define now,
+   * since no other key can have changed. If the changes cannot be resolved, the files' previous properties are put
+   * back, so that {@link #parsed} always matches the published snapshot and a later change to another file cannot
+   * publish part of the refused change.
+   */
+  private void reload(@Nonnull final Set<Path> changedFiles) {
+    final Set<String> keys = Sets.newHashSet();
+    final Map<Path, ImmutableMap<String, String>> previousFiles = Maps.newHashMap();
+    for (final Path file : changedFiles) {
+      final ImmutableMap<String, String> previous = parsed.get(file);
+      final ImmutableMap<String, String> updated = parse(file, previous);
+      keys.addAll(previous.keySet());
+      keys.addAll(updated.keySet());
+      previousFiles.put(file, previous);
+      parsed.put(file, updated);
+    }
+    final PropertiesSnapshot current = snapshot.get();
+    final Map<String, String> before = current.getSource();
+    final LayeredProperties after = source();
+    final Map<String, String> changedSource = Maps.newHashMap();
+    for (final String key : keys) {
+      final String value = after.get(key);
+      if (!Objects.equal(before.get(key), value)) {
+        changedSource.put(key, value);
+      }
+    }
+    PropertiesSnapshot.Update update = null;
+    try {
+      update = current.update(changedSource);
+    }
+    catch (final RuntimeException e) {
+      log.warn("Could not resolve changes to {}, keeping the previous properties", changedFiles, e);
+      parsed.putAll(previousFiles);
+    }
+    if (null != update) {
+      snapshot.set(update.getSnapshot());
+      notifyListeners(update.getChangedKeys());
+    }
+  }
+
+  private void notifyListeners(@Nonnull final ImmutableSet<String> changedKeys) {
+    if (!changedKeys.isEmpty()) {
+      for (final Listener listener : listeners) {
+        try {
+          listener.propertiesChanged(this, changedKeys);
+        }
+        catch (final RuntimeException e) {
+          log.warn("Exception notifying {} of changed properties", listener, e);
+        }
+      }
+    }
+  }
+}
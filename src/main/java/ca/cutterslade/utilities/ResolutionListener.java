@@ -0,0 +1,76 @@
+package ca.cutterslade.utilities;
+
+import java.net.URL;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives timings from {@link PropertiesUtils#loadProperties(URL, ResolutionListener)} and from a
+ * {@link PropertiesResolver} created with a listener, to find where the time spent loading and resolving properties
+ * goes. Times are in nanoseconds. A resolver given {@link #NONE} does not read the clock at all.
+ * <p>
+ * Implementations must be thread safe if they are shared by resolvers used on different threads.
+ * {@link ResolutionMetrics} aggregates the events and can expose them over JMX.
+ */
+public interface ResolutionListener {
+
+  /**
+   * Ignores every event.
+   */
+  ResolutionListener NONE = new ResolutionListener() {
+
+    @Override
+    public void propertiesLoaded(final URL resource, final int size, final long nanos) {
+      // no-op
+    }
+
+    @Override
+    public void keyResolved(final String key, final int depth, final long nanos) {
+      // no-op
+    }
+
+    @Override
+    public void functionCalled(final String function, final long nanos) {
+      // no-op
+    }
+
+    @Override
+    public void resolutionCompleted(final int keys, final int unresolvedPlaceholders, final long nanos) {
+      // no-op
+    }
+  };
+
+  /**
+   * @param size
+   *          the number of properties loaded
+   */
+  void propertiesLoaded(@Nonnull URL resource, int size, long nanos);
+
+  /**
+   * Called once for each key a resolver evaluates. The keys a key references are evaluated first, so the time is that
+   * of evaluating the key's own value, including the functions it calls, but not the keys it references.
+   *
+   * @param depth
+   *          the length of the longest chain of defined keys referenced from the key, zero if it references none
+   */
+  void keyResolved(@Nonnull String key, int depth, long nanos);
+
+  /**
+   * Called for each call of a computed placeholder's function, including calls answered by the
+   * {@link ComputationCache}.
+   *
+   * @param function
+   *          the function name as used in the placeholder
+   */
+  void functionCalled(@Nonnull String function, long nanos);
+
+  /**
+   * Called when {@link PropertiesResolver#getResolved()} completes, if it evaluated any keys.
+   *
+   * @param keys
+   *          the number of keys evaluated by that call
+   * @param unresolvedPlaceholders
+   *          the number of placeholders left in the values because they reference undefined keys and give no default
+   */
+  void resolutionCompleted(int keys, int unresolvedPlaceholders, long nanos);
+}
@@ -0,0 +1,291 @@
+package ca.cutterslade.utilities;
+
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A thread safe {@link ResolutionListener} which totals the events it receives: load and resolution counts and times,
+ * calls and time per function, unresolved placeholders, and the slowest keys evaluated. The totals may be exposed as a
+ * platform MBean with {@link #registerMBean(String)}.
+ */
+public final class ResolutionMetrics implements ResolutionListener, ResolutionMetricsMBean {
+
+  public static final int DEFAULT_SLOWEST_KEYS = 10;
+
+  private static final Comparator<KeyTiming> FASTEST_FIRST = new Comparator<KeyTiming>() {
+
+    @Override
+    public int compare(final KeyTiming o1, final KeyTiming o2) {
+      return o1.nanos < o2.nanos ? -1 : o1.nanos == o2.nanos ? 0 : 1;
+    }
+  };
+
+  private final int slowestKeyCount;
+
+  private final AtomicLong loads = new AtomicLong();
+
+  private final AtomicLong loadedProperties = new AtomicLong();
+
+  private final AtomicLong loadNanos = new AtomicLong();
+
+  private final AtomicLong resolutions = new AtomicLong();
+
+  private final AtomicLong resolutionNanos = new AtomicLong();
+
+  private final AtomicLong resolvedKeys = new AtomicLong();
+
+  private final AtomicLong unresolvedPlaceholders = new AtomicLong();
+
+  private final ConcurrentMap<String, FunctionTiming> functions = Maps.newConcurrentMap();
+
+  /**
+   * The slowest keys seen, fastest at the head so it is the one replaced. Guarded by itself.
+   */
+  private final PriorityQueue<KeyTiming> slowestKeys;
+
+  public ResolutionMetrics() {
+    this(DEFAULT_SLOWEST_KEYS);
+  }
+
+  /**
+   * @param slowestKeyCount
+   *          the number of slowest keys to remember
+   */
+  public ResolutionMetrics(final int slowestKeyCount) {
+    Preconditions.checkArgument(slowestKeyCount > 0, "slowestKeyCount must be positive");
+    this.slowestKeyCount = slowestKeyCount;
+    this.slowestKeys = new PriorityQueue<KeyTiming>(slowestKeyCount, FASTEST_FIRST);
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server under
+   * {@code ca.cutterslade.utilities:type=ResolutionMetrics,name=}<i>name</i>.
+   *
+   * @return the name registered, with which to unregister the MBean
+   */
+  public ObjectName registerMBean(@Nonnull final String name) throws JMException {
+    final ObjectName objectName =
+        ObjectName.getInstance("ca.cutterslade.utilities:type=ResolutionMetrics,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    return objectName;
+  }
+
+  @Override
+  public void propertiesLoaded(final URL resource, final int size, final long nanos) {
+    loads.incrementAndGet();
+    loadedProperties.addAndGet(size);
+    loadNanos.addAndGet(nanos);
+  }
+
+  @Override
+  public void keyResolved(final String key, final int depth, final long nanos) {
+    resolvedKeys.incrementAndGet();
+    synchronized (slowestKeys) {
+      if (slowestKeys.size() < slowestKeyCount) {
+        slowestKeys.add(new KeyTiming(key, depth, nanos));
+      }
+      else if (slowestKeys.peek().nanos < nanos) {
+        slowestKeys.poll();
+        slowestKeys.add(new KeyTiming(key, depth, nanos));
+      }
+    }
+  }
+
+  @Override
+  public void functionCalled(final String function, final long nanos) {
+    FunctionTiming timing = functions.get(function);
+    if (null == timing) {
+      timing = new FunctionTiming();
+      final FunctionTiming existing = functions.putIfAbsent(function, timing);
+      if (null != existing) {
+        timing = existing;
+      }
+    }
+    timing.calls.incrementAndGet();
+    timing.nanos.addAndGet(nanos);
+  }
+
+  @Override
+  public void resolutionCompleted(final int keys, final int unresolved, final long nanos) {
+    resolutions.incrementAndGet();
+    resolutionNanos.addAndGet(nanos);
+    unresolvedPlaceholders.addAndGet(unresolved);
+  }
+
+  @Override
+  public long getLoadCount() {
+    return loads.get();
+  }
+
+  @Override
+  public long getLoadedPropertyCount() {
+    return loadedProperties.get();
+  }
+
+  public long getLoadNanos() {
+    return loadNanos.get();
+  }
+
+  @Override
+  public double getLoadTimeMillis() {
+    return toMillis(loadNanos.get());
+  }
+
+  @Override
+  public long getResolutionCount() {
+    return resolutions.get();
+  }
+
+  public long getResolutionNanos() {
+    return resolutionNanos.get();
+  }
+
+  @Override
+  public double getResolutionTimeMillis() {
+    return toMillis(resolutionNanos.get());
+  }
+
+  @Override
+  public long getResolvedKeyCount() {
+    return resolvedKeys.get();
+  }
+
+  @Override
+  public long getUnresolvedPlaceholderCount() {
+    return unresolvedPlaceholders.get();
+  }
+
+  /**
+   * The number of calls and total time of each function, by the name used in the placeholders.
+   */
+  public ImmutableMap<String, FunctionTiming> getFunctions() {
+    return ImmutableMap.copyOf(functions);
+  }
+
+  /**
+   * The slowest keys evaluated, slowest first.
+   */
+  public ImmutableList<KeyTiming> getSlowestKeys() {
+    final List<KeyTiming> keys;
+    synchronized (slowestKeys) {
+      keys = Lists.newArrayList(slowestKeys);
+    }
+    Collections.sort(keys, Collections.reverseOrder(FASTEST_FIRST));
+    return ImmutableList.copyOf(keys);
+  }
+
+  @Override
+  public String[] getFunctionSummaries() {
+    final List<String> summaries = Lists.newArrayList();
+    for (final Map.Entry<String, FunctionTiming> entry : functions.entrySet()) {
+      summaries.add(entry.getKey() + ": " + entry.getValue());
+    }
+    Collections.sort(summaries);
+    return summaries.toArray(new String[summaries.size()]);
+  }
+
+  @Override
+  public String[] getSlowestKeySummaries() {
+    final List<String> summaries = Lists.newArrayList();
+    for (final KeyTiming timing : getSlowestKeys()) {
+      summaries.add(timing.toString());
+    }
+    return summaries.toArray(new String[summaries.size()]);
+  }
+
+  @Override
+  public void reset() {
+    loads.set(0);
+    loadedProperties.set(0);
+    loadNanos.set(0);
+    resolutions.set(0);
+    resolutionNanos.set(0);
+    resolvedKeys.set(0);
+    unresolvedPlaceholders.set(0);
+    functions.clear();
+    synchronized (slowestKeys) {
+      slowestKeys.clear();
+    }
+  }
+
+  private static double toMillis(final long nanos) {
+    return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public static final class FunctionTiming {
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    FunctionTiming() {
+      // created by ResolutionMetrics
+    }
+
+    public long getCalls() {
+      return calls.get();
+    }
+
+    public long getNanos() {
+      return nanos.get();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d calls, %.3f ms", calls.get(), toMillis(nanos.get()));
+    }
+  }
+
+  public static final class KeyTiming {
+
+    private final String key;
+
+    private final int depth;
+
+    private final long nanos;
+
+    KeyTiming(@Nonnull final String key, final int depth, final long nanos) {
+      this.key = key;
+      this.depth = depth;
+      this.nanos = nanos;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * The length of the longest chain of defined keys referenced from the key.
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s (depth %d): %.3f ms", key, depth, toMillis(nanos));
+    }
+  }
+}
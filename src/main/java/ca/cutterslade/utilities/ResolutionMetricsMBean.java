@@ -0,0 +1,33 @@
+package ca.cutterslade.utilities;
+
+/**
+ * The JMX view of {@link ResolutionMetrics}. Times are in milliseconds.
+ */
+public interface ResolutionMetricsMBean {
+
+  long getLoadCount();
+
+  long getLoadedPropertyCount();
+
+  double getLoadTimeMillis();
+
+  long getResolutionCount();
+
+  double getResolutionTimeMillis();
+
+  long getResolvedKeyCount();
+
+  long getUnresolvedPlaceholderCount();
+
+  /**
+   * One line per function: its name, number of calls and total time.
+   */
+  String[] getFunctionSummaries();
+
+  /**
+   * One line per key, slowest first: the key, its dependency depth and the time to evaluate it.
+   */
+  String[] getSlowestKeySummaries();
+
+  void reset();
+}
@@ -0,0 +1,307 @@
+package ca.cutterslade.utilities;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Resources;
+
+/**
+ * A size bounded cache of the text of resources, used by {@link BuiltinFunctions#READ}. Entries are keyed by resource
+ * URL and weighed by their length in characters; the least recently used entries are evicted once the total weight
+ * exceeds the maximum. An entry is reloaded when the last modified time or size of its resource changes. Large
+ * {@code file:} resources are decoded straight from a memory mapped buffer.
+ * <p>
+ * Checking a {@code file:} resource is cheap, so it is checked on every read. Resources inside a jar, read through
+ * {@code jar:} URLs, are treated as immutable and never checked once cached; other resources, which may need a
+ * request to a server to check, are checked at most once per revalidation interval.
+ */
+public final class ResourceCache {
+
+  private static final Logger log = LoggerFactory.getLogger(ResourceCache.class);
+
+  public static final long DEFAULT_MAXIMUM_CHARACTERS = 16 * 1024 * 1024;
+
+  public static final long DEFAULT_REVALIDATE_MILLIS = 1000;
+
+  private static final long MAP_THRESHOLD = 64 * 1024;
+
+  private static final ResourceCache SHARED = new ResourceCache(DEFAULT_MAXIMUM_CHARACTERS);
+
+  private final Cache<String, Entry> cache;
+
+  private final long revalidateNanos;
+
+  private final Ticker ticker;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public ResourceCache(final long maximumCharacters) {
+    this(maximumCharacters, DEFAULT_REVALIDATE_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param revalidateInterval
+   *          how long a cached resource other than a {@code file:} or {@code jar:} resource is used before it is
+   *          checked for changes again
+   */
+  public ResourceCache(final long maximumCharacters, final long revalidateInterval, @Nonnull final TimeUnit unit) {
+    this(maximumCharacters, revalidateInterval, unit, Ticker.systemTicker());
+  }
+
+  ResourceCache(final long maximumCharacters, final long revalidateInterval, @Nonnull final TimeUnit unit,
+      @Nonnull final Ticker ticker) {
+    Preconditions.checkArgument(maximumCharacters >= 0, "maximumCharacters must not be negative");
+    Preconditions.checkArgument(revalidateInterval >= 0, "revalidateInterval must not be negative");
+    this.revalidateNanos = unit.toNanos(revalidateInterval);
+    this.ticker = ticker;
+    this.cache = CacheBuilder.newBuilder().maximumWeight(maximumCharacters).weigher(new Weigher<String, Entry>() {
+
+      @Override
+      public int weigh(final String key, final Entry value) {
+        return value.content.length();
+      }
+    }).removalListener(new RemovalListener<String, Entry>() {
+
+      @Override
+      public void onRemoval(final RemovalNotification<String, Entry> notification) {
+        if (notification.wasEvicted()) {
+          evictions.incrementAndGet();
+        }
+      }
+    }).build();
+  }
+
+  /**
+   * The cache shared by all resolvers.
+   */
+  public static ResourceCache shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns the UTF-8 text of the given resource, from the cache if the resource has not changed since it was cached.
+   */
+  public String read(@Nonnull final URL resource) throws IOException {
+    final String key = resource.toExternalForm();
+    final File file = toFile(resource);
+    final Entry cached = cache.getIfPresent(key);
+    final long now = ticker.read();
+    final String content;
+    if (null != cached && null == file && isFresh(resource, cached, now)) {
+      hits.incrementAndGet();
+      content = cached.content;
+    }
+    else if (null == file) {
+      content = readConnection(resource, key, cached, now);
+    }
+    else {
+      final Version version = Version.of(file);
+      if (null != cached && cached.version.equals(version)) {
+        content = hit(cached, now);
+      }
+      else {
+        miss(key, cached);
+        content = file.length() < MAP_THRESHOLD ? Resources.toString(resource, Charsets.UTF_8) : readMapped(file);
+        cache.put(key, new Entry(content, version, now));
+      }
+    }
+    return content;
+  }
+
+  /**
+   * Checks a resource other than a file and reads it if it has changed, through a single connection which is always
+   * closed; the resource is requested once, and the content cached is the content whose version was checked.
+   */
+  private String readConnection(@Nonnull final URL resource, @Nonnull final String key, @Nullable final Entry cached,
+      final long now) throws IOException {
+    final URLConnection connection = resource.openConnection();
+    final InputStream stream = connection.getInputStream();
+    final String content;
+    try {
+      final Version version = new Version(connection.getLastModified(), connection.getContentLengthLong());
+      if (null != cached && cached.version.equals(version)) {
+        content = hit(cached, now);
+      }
+      else {
+        miss(key, cached);
+        content = CharStreams.toString(new InputStreamReader(stream, Charsets.UTF_8));
+        cache.put(key, new Entry(content, version, now));
+      }
+    }
+    finally {
+      close(stream);
+    }
+    return content;
+  }
+
+  private String hit(@Nonnull final Entry cached, final long now) {
+    hits.incrementAndGet();
+    cached.validated = now;
+    return cached.content;
+  }
+
+  private void miss(@Nonnull final String key, @Nullable final Entry cached) {
+    if (null != cached) {
+      invalidations.incrementAndGet();
+      cache.invalidate(key);
+    }
+    misses.incrementAndGet();
+  }
+
+  /**
+   * Whether a cached resource read through a URL other than a {@code file:} URL can be used without checking it.
+   */
+  private boolean isFresh(@Nonnull final URL resource, @Nonnull final Entry cached, final long now) {
+    return "jar".equals(resource.getProtocol()) || now - cached.validated < revalidateNanos;
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * The number of cached entries discarded because their resource had changed.
+   */
+  public long getInvalidationCount() {
+    return invalidations.get();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  @Nullable
+  private static File toFile(@Nonnull final URL resource) {
+    File file = null;
+    if ("file".equals(resource.getProtocol())) {
+      try {
+        file = new File(resource.toURI());
+      }
+      catch (final URISyntaxException e) {
+        log.debug("Reading {} as a stream", resource, e);
+      }
+      catch (final IllegalArgumentException e) {
+        log.debug("Reading {} as a stream", resource, e);
+      }
+    }
+    return file;
+  }
+
+  private static String readMapped(@Nonnull final File file) throws IOException {
+    final RandomAccessFile input = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = input.getChannel();
+      return Charsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).toString();
+    }
+    finally {
+      close(input);
+    }
+  }
+
+  private static void close(@Nonnull final Closeable closeable) {
+    try {
+      closeable.close();
+    }
+    catch (final IOException e) {
+      log.warn("Exception closing resource", e);
+    }
+  }
+
+  private static final class Entry {
+
+    private final String content;
+
+    private final Version version;
+
+    /**
+     * The {@link Ticker} time at which the resource was last found unchanged.
+     */
+    private volatile long validated;
+
+    Entry(@Nonnull final String content, @Nonnull final Version version, final long validated) {
+      this.content = content;
+      this.version = version;
+      this.validated = validated;
+    }
+  }
+
+  private static final class Version {
+
+    private final long lastModified;
+
+    private final long size;
+
+    private Version(final long lastModified, final long size) {
+      this.lastModified = lastModified;
+      this.size = size;
+    }
+
+    static Version of(@Nonnull final File file) {
+      return new Version(file.lastModified(), file.length());
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      final boolean equal;
+      if (this == obj) {
+        equal = true;
+      }
+      else if (obj instanceof Version) {
+        final Version other = (Version) obj;
+        equal = lastModified == other.lastModified && size == other.size;
+      }
+      else {
+        equal = false;
+      }
+      return equal;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (lastModified ^ lastModified >>> 32) * 31 + (int) (size ^ size >>> 32);
+    }
+  }
+}
@@ -0,0 +1,553 @@
+package ca.cutterslade.utilities;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+
+/**
+ * Streams the rows of a {@link ResultSet} to a {@link WritableByteChannel} as CSV or JSON Lines. Each value is encoded
+ * according to its column's SQL type straight into a direct buffer which is reused for the whole export and written to
+ * the channel whenever it fills, so memory use does not grow with the number of rows. Integer columns are formatted
+ * digit by digit without creating a {@link String}, as are decimal columns of up to 18 digits, written in the form of
+ * {@link BigDecimal#toString()} from their unscaled value and scale, and floating point values which are whole numbers
+ * below ten million. Other floating point values are still formatted through {@link Double#toString(double)} or
+ * {@link Float#toString(float)}, creating a {@link String} per value, since writing the shortest digits which read back
+ * as the same value needs an algorithm such as Ry&#363; which this class does not carry. Other columns are read with
+ * {@link ResultSet#getString(int)} and encoded to UTF-8 as they are escaped. Single precision {@code REAL} columns are
+ * read as {@code float}, so a value such as {@code 0.1f} is written as {@code 0.1} rather than as the digits of its
+ * widened {@code double}.
+ * <p>
+ * CSV output follows RFC 4180: a header line of column labels, {@code CRLF} line endings, and fields quoted when they
+ * contain a comma, quote or line break. A {@code NULL} is written as an empty field and an empty string as {@code ""}.
+ * JSON Lines output is one object per row keyed by column label, with {@code NULL} written as {@code null}; JSON has no
+ * representation of non-finite numbers, so they are written as strings such as {@code "NaN"}.
+ * <p>
+ * An exporter owns its buffer and must not be used by more than one thread at a time. Neither the result set nor the
+ * channel is closed.
+ */
+public final class ResultSetExporter {
+
+  public enum Format {
+    CSV,
+    JSON_LINES
+  }
+
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Room for the longest value written without checking for space again: a {@code long} or a JSON {@code \}{@code u}
+   * escape.
+   */
+  private static final int MIN_BUFFER_SIZE = 64;
+
+  private static final int LONG_DIGITS = 20;
+
+  private static final int DECIMAL_RADIX = 10;
+
+  /**
+   * The bound below which a whole floating point number is written as {@code toString()} writes it, in plain notation.
+   */
+  private static final double PLAIN_LIMIT = 1e7;
+
+  /**
+   * The least adjusted exponent of a {@link BigDecimal} which {@link BigDecimal#toString()} writes in plain notation.
+   */
+  private static final int MIN_PLAIN_EXPONENT = -6;
+
+  private static final byte[] POINT_ZERO = ".0".getBytes(Charsets.US_ASCII);
+
+  private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(Charsets.US_ASCII);
+
+  private static final byte[] TRUE = "true".getBytes(Charsets.US_ASCII);
+
+  private static final byte[] FALSE = "false".getBytes(Charsets.US_ASCII);
+
+  private static final byte[] NULL = "null".getBytes(Charsets.US_ASCII);
+
+  private static final byte[] CSV_LINE_END = "\r\n".getBytes(Charsets.US_ASCII);
+
+  /**
+   * The JSON escape of each ASCII character which needs one, {@code null} for the others.
+   */
+  private static final byte[][] JSON_ESCAPES = new byte[128][];
+
+  static {
+    for (int c = 0; c < ' '; c++) {
+      JSON_ESCAPES[c] = String.format("\\u%04x", c).getBytes(Charsets.US_ASCII);
+    }
+    JSON_ESCAPES['\b'] = "\\b".getBytes(Charsets.US_ASCII);
+    JSON_ESCAPES['\t'] = "\\t".getBytes(Charsets.US_ASCII);
+    JSON_ESCAPES['\n'] = "\\n".getBytes(Charsets.US_ASCII);
+    JSON_ESCAPES['\f'] = "\\f".getBytes(Charsets.US_ASCII);
+    JSON_ESCAPES['\r'] = "\\r".getBytes(Charsets.US_ASCII);
+    JSON_ESCAPES['"'] = "\\\"".getBytes(Charsets.US_ASCII);
+    JSON_ESCAPES['\\'] = "\\\\".getBytes(Charsets.US_ASCII);
+  }
+
+  private enum Encoding {
+    INT,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    DECIMAL,
+    BOOLEAN,
+    TEXT;
+
+    static Encoding of(final int sqlType) {
+      final Encoding encoding;
+      switch (sqlType) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+          encoding = INT;
+          break;
+        case Types.BIGINT:
+          encoding = LONG;
+          break;
+        case Types.REAL:
+          encoding = FLOAT;
+          break;
+        case Types.FLOAT:
+        case Types.DOUBLE:
+          encoding = DOUBLE;
+          break;
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+          encoding = DECIMAL;
+          break;
+        case Types.BIT:
+        case Types.BOOLEAN:
+          encoding = BOOLEAN;
+          break;
+        default:
+          encoding = TEXT;
+      }
+      return encoding;
+    }
+  }
+
+  private final Format format;
+
+  private final ByteBuffer buffer;
+
+  private final byte[] digits = new byte[LONG_DIGITS];
+
+  private WritableByteChannel channel;
+
+  public ResultSetExporter(@Nonnull final Format format) {
+    this(format, DEFAULT_BUFFER_SIZE);
+  }
+
+  public ResultSetExporter(@Nonnull final Format format, final int bufferSize) {
+    Preconditions.checkArgument(bufferSize >= MIN_BUFFER_SIZE, "bufferSize must be at least %s", MIN_BUFFER_SIZE);
+    this.format = Preconditions.checkNotNull(format);
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  public Format getFormat() {
+    return format;
+  }
+
+  /**
+   * Writes the remaining rows of the result set to the channel.
+   *
+   * @return the number of rows written
+   */
+  public long export(@Nonnull final ResultSet result, @Nonnull final WritableByteChannel channel)
+      throws SQLException, IOException {
+    this.channel = channel;
+    buffer.clear();
+    try {
+      final ResultSetMetaData metaData = result.getMetaData();
+      final int columns = metaData.getColumnCount();
+      final Encoding[] encodings = new Encoding[columns];
+      final byte[][] prefixes = new byte[columns][];
+      for (int i = 0; i < columns; i++) {
+        encodings[i] = Encoding.of(metaData.getColumnType(i + 1));
+        prefixes[i] = prefix(i, metaData.getColumnLabel(i + 1));
+      }
+      if (Format.CSV == format) {
+        for (final byte[] prefix : prefixes) {
+          writeBytes(prefix);
+        }
+        writeBytes(CSV_LINE_END);
+      }
+      long rows = 0;
+      while (result.next()) {
+        for (int i = 0; i < columns; i++) {
+          if (Format.JSON_LINES == format) {
+            writeBytes(prefixes[i]);
+          }
+          else if (0 != i) {
+            put((byte) ',');
+          }
+          writeValue(result, i + 1, encodings[i]);
+        }
+        if (Format.JSON_LINES == format) {
+          put((byte) '}');
+          put((byte) '\n');
+        }
+        else {
+          writeBytes(CSV_LINE_END);
+        }
+        rows++;
+      }
+      flush();
+      return rows;
+    }
+    finally {
+      this.channel = null;
+    }
+  }
+
+  /**
+   * The bytes written before each value of a column: the opening brace or comma and the key in JSON Lines, or the
+   * header field in CSV.
+   */
+  private byte[] prefix(final int index, @Nonnull final String label) {
+    final StringBuilder prefix = new StringBuilder();
+    if (Format.JSON_LINES == format) {
+      prefix.append(0 == index ? '{' : ',').append('"');
+      for (int i = 0; i < label.length(); i++) {
+        final char c = label.charAt(i);
+        if (c < JSON_ESCAPES.length && null != JSON_ESCAPES[c]) {
+          prefix.append(new String(JSON_ESCAPES[c], Charsets.US_ASCII));
+        }
+        else {
+          prefix.append(c);
+        }
+      }
+      prefix.append("\":");
+    }
+    else {
+      if (0 != index) {
+        prefix.append(',');
+      }
+      if (needsQuotes(label)) {
+        prefix.append('"').append(label.replace("\"", "\"\"")).append('"');
+      }
+      else {
+        prefix.append(label);
+      }
+    }
+    return prefix.toString().getBytes(Charsets.UTF_8);
+  }
+
+  private void writeValue(@Nonnull final ResultSet result, final int column, @Nonnull final Encoding encoding)
+      throws SQLException, IOException {
+    switch (encoding) {
+      case INT:
+        final int intValue = result.getInt(column);
+        if (result.wasNull()) {
+          writeNull();
+        }
+        else {
+          writeLong(intValue);
+        }
+        break;
+      case LONG:
+        final long longValue = result.getLong(column);
+        if (result.wasNull()) {
+          writeNull();
+        }
+        else {
+          writeLong(longValue);
+        }
+        break;
+      case FLOAT:
+        final float floatValue = result.getFloat(column);
+        if (result.wasNull()) {
+          writeNull();
+        }
+        else if (Format.JSON_LINES == format && (Float.isNaN(floatValue) || Float.isInfinite(floatValue))) {
+          writeText(Float.toString(floatValue));
+        }
+        else if (!writeWhole(floatValue)) {
+          writeAscii(Float.toString(floatValue));
+        }
+        break;
+      case DOUBLE:
+        final double doubleValue = result.getDouble(column);
+        if (result.wasNull()) {
+          writeNull();
+        }
+        else if (Format.JSON_LINES == format && (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue))) {
+          writeText(Double.toString(doubleValue));
+        }
+        else if (!writeWhole(doubleValue)) {
+          writeAscii(Double.toString(doubleValue));
+        }
+        break;
+      case DECIMAL:
+        final BigDecimal decimalValue = result.getBigDecimal(column);
+        if (null == decimalValue) {
+          writeNull();
+        }
+        else {
+          writeDecimal(decimalValue);
+        }
+        break;
+      case BOOLEAN:
+        final boolean booleanValue = result.getBoolean(column);
+        if (result.wasNull()) {
+          writeNull();
+        }
+        else {
+          writeBytes(booleanValue ? TRUE : FALSE);
+        }
+        break;
+      default:
+        final String text = result.getString(column);
+        if (null == text) {
+          writeNull();
+        }
+        else {
+          writeText(text);
+        }
+    }
+  }
+
+  private void writeNull() throws IOException {
+    if (Format.JSON_LINES == format) {
+      writeBytes(NULL);
+    }
+  }
+
+  private void writeLong(final long value) throws IOException {
+    ensure(LONG_DIGITS);
+    if (Long.MIN_VALUE == value) {
+      buffer.put(MIN_LONG);
+    }
+    else {
+      long remaining = value;
+      if (remaining < 0) {
+        buffer.put((byte) '-');
+        remaining = -remaining;
+      }
+      int start = digits.length;
+      do {
+        digits[--start] = (byte) ('0' + remaining % DECIMAL_RADIX);
+        remaining /= DECIMAL_RADIX;
+      } while (0 != remaining);
+      buffer.put(digits, start, digits.length - start);
+    }
+  }
+
+  /**
+   * Writes a whole number below {@link #PLAIN_LIMIT} as {@code toString()} would, with a trailing {@code .0}.
+   *
+   * @return {@code false}, writing nothing, if the value is not such a number or is negative zero
+   */
+  private boolean writeWhole(final double value) throws IOException {
+    final long whole = (long) value;
+    final boolean written = whole == value && Math.abs(value) < PLAIN_LIMIT
+        && (0 != whole || 0 == Double.doubleToRawLongBits(value));
+    if (written) {
+      writeLong(whole);
+      writeBytes(POINT_ZERO);
+    }
+    return written;
+  }
+
+  /**
+   * Writes a decimal as {@link BigDecimal#toString()} would: in plain notation if its scale is not negative and its
+   * adjusted exponent is at least {@link #MIN_PLAIN_EXPONENT}, otherwise in scientific notation with one digit before
+   * the point. The digits are written from the unscaled value if it fits a {@code long}.
+   */
+  private void writeDecimal(@Nonnull final BigDecimal value) throws IOException {
+    final BigInteger unscaled = value.unscaledValue();
+    if (unscaled.bitLength() < Long.SIZE - 1) {
+      long remaining = unscaled.longValue();
+      if (remaining < 0) {
+        put((byte) '-');
+        remaining = -remaining;
+      }
+      int start = digits.length;
+      do {
+        digits[--start] = (byte) ('0' + remaining % DECIMAL_RADIX);
+        remaining /= DECIMAL_RADIX;
+      } while (0 != remaining);
+      final int length = digits.length - start;
+      final int scale = value.scale();
+      final long exponent = length - 1L - scale;
+      if (0 == scale) {
+        writeDigits(start, length);
+      }
+      else if (scale > 0 && exponent >= MIN_PLAIN_EXPONENT) {
+        if (length > scale) {
+          writeDigits(start, length - scale);
+          put((byte) '.');
+          writeDigits(start + length - scale, scale);
+        }
+        else {
+          put((byte) '0');
+          put((byte) '.');
+          for (int i = length; i < scale; i++) {
+            put((byte) '0');
+          }
+          writeDigits(start, length);
+        }
+      }
+      else {
+        writeDigits(start, 1);
+        if (length > 1) {
+          put((byte) '.');
+          writeDigits(start + 1, length - 1);
+        }
+        put((byte) 'E');
+        if (exponent > 0) {
+          put((byte) '+');
+        }
+        writeLong(exponent);
+      }
+    }
+    else {
+      writeAscii(value.toString());
+    }
+  }
+
+  /**
+   * Writes digits from {@link #digits}, which {@link #writeLong(long)} must not overwrite in the meantime.
+   */
+  private void writeDigits(final int start, final int length) throws IOException {
+    for (int i = start; i < start + length; i++) {
+      put(digits[i]);
+    }
+  }
+
+  /**
+   * Writes characters known not to need escaping or quoting, such as a formatted number.
+   */
+  private void writeAscii(@Nonnull final String text) throws IOException {
+    for (int i = 0; i < text.length(); i++) {
+      put((byte) text.charAt(i));
+    }
+  }
+
+  /**
+   * Writes a string as a quoted and escaped JSON string, or as a CSV field quoted only if it needs to be.
+   */
+  private void writeText(@Nonnull final String text) throws IOException {
+    if (Format.JSON_LINES == format) {
+      put((byte) '"');
+      for (int i = 0; i < text.length(); i++) {
+        final char c = text.charAt(i);
+        if (c < JSON_ESCAPES.length && null != JSON_ESCAPES[c]) {
+          writeBytes(JSON_ESCAPES[c]);
+        }
+        else {
+          i = writeChar(text, i);
+        }
+      }
+      put((byte) '"');
+    }
+    else if (needsQuotes(text)) {
+      put((byte) '"');
+      for (int i = 0; i < text.length(); i++) {
+        if ('"' == text.charAt(i)) {
+          put((byte) '"');
+        }
+        i = writeChar(text, i);
+      }
+      put((byte) '"');
+    }
+    else {
+      for (int i = 0; i < text.length(); i++) {
+        i = writeChar(text, i);
+      }
+    }
+  }
+
+  /**
+   * A CSV field needs quotes if it is empty, to tell it from {@code NULL}, or if it contains a comma, quote or line
+   * break.
+   */
+  private static boolean needsQuotes(@Nonnull final String text) {
+    boolean quote = text.isEmpty();
+    for (int i = 0; !quote && i < text.length(); i++) {
+      final char c = text.charAt(i);
+      quote = ',' == c || '"' == c || '\n' == c || '\r' == c;
+    }
+    return quote;
+  }
+
+  /**
+   * Writes the UTF-8 encoding of the character at the given index, combining it with the next character if they form a
+   * surrogate pair. An unpaired surrogate is written as {@code ?}, as {@link String#getBytes} does.
+   *
+   * @return the index of the last character written
+   */
+  private int writeChar(@Nonnull final String text, final int index) throws IOException {
+    final char c = text.charAt(index);
+    int last = index;
+    ensure(4);
+    if (c < 0x80) {
+      buffer.put((byte) c);
+    }
+    else if (c < 0x800) {
+      buffer.put((byte) (0xc0 | c >> 6));
+      buffer.put((byte) (0x80 | c & 0x3f));
+    }
+    else if (!Character.isSurrogate(c)) {
+      buffer.put((byte) (0xe0 | c >> 12));
+      buffer.put((byte) (0x80 | c >> 6 & 0x3f));
+      buffer.put((byte) (0x80 | c & 0x3f));
+    }
+    else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+        && Character.isLowSurrogate(text.charAt(index + 1))) {
+      final int codePoint = Character.toCodePoint(c, text.charAt(++last));
+      buffer.put((byte) (0xf0 | codePoint >> 18));
+      buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+      buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+      buffer.put((byte) (0x80 | codePoint & 0x3f));
+    }
+    else {
+      buffer.put((byte) '?');
+    }
+    return last;
+  }
+
+  private void writeBytes(@Nonnull final byte[] bytes) throws IOException {
+    int offset = 0;
+    while (offset < bytes.length) {
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+      final int length = Math.min(buffer.remaining(), bytes.length - offset);
+      buffer.put(bytes, offset, length);
+      offset += length;
+    }
+  }
+
+  private void put(final byte b) throws IOException {
+    if (!buffer.hasRemaining()) {
+      flush();
+    }
+    buffer.put(b);
+  }
+
+  private void ensure(final int length) throws IOException {
+    if (buffer.remaining() < length) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
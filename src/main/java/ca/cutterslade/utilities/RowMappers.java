@@ -0,0 +1,278 @@
+package ca.cutterslade.utilities;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+
+/**
+ * Creates {@link Function}s mapping the rows of a {@link ResultSet} to instances of a class, for use with
+ * {@link ResultSetTransformer}. The {@link ResultSetMetaData} is read once, when the mapper is created; each column is
+ * bound by index to the typed {@link ResultSet} getter for its target, and the getters are composed with the target's
+ * constructor or setters into a single {@link MethodHandle}, so mapping a row is one handle invocation involving no
+ * lookups by name and no reflection.
+ * <p>
+ * A class with a public constructor taking one parameter per column is created through that constructor, with the
+ * columns passed in order. Otherwise the class must have a public no argument constructor, and each column is passed
+ * to the public setter whose name matches its label, ignoring case and underscores, so a column labelled
+ * {@code FIRST_NAME} is passed to {@code setFirstName}; columns without a matching setter are ignored. Of overloaded
+ * setters only those taking a supported type are considered, and a column whose setter is still overloaded is rejected
+ * rather than passed to whichever overload reflection happens to list last.
+ * <p>
+ * The supported types are the primitives other than {@code char} and their wrappers, {@link String},
+ * {@link BigDecimal}, {@code byte[]}, {@link Date}, {@link Time}, {@link Timestamp} and {@link Object}, each read with
+ * the matching {@link ResultSet} getter. Primitive targets receive zero for SQL {@code NULL}, as {@link ResultSet}
+ * getters return; wrapper targets receive {@code null}.
+ */
+public final class RowMappers {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final ImmutableMap<Class<?>, MethodHandle> GETTERS;
+  static {
+    final ImmutableMap.Builder<Class<?>, MethodHandle> builder = ImmutableMap.builder();
+    try {
+      builder.put(int.class, resultSetGetter("getInt", int.class));
+      builder.put(long.class, resultSetGetter("getLong", long.class));
+      builder.put(double.class, resultSetGetter("getDouble", double.class));
+      builder.put(float.class, resultSetGetter("getFloat", float.class));
+      builder.put(short.class, resultSetGetter("getShort", short.class));
+      builder.put(byte.class, resultSetGetter("getByte", byte.class));
+      builder.put(boolean.class, resultSetGetter("getBoolean", boolean.class));
+      builder.put(String.class, resultSetGetter("getString", String.class));
+      builder.put(BigDecimal.class, resultSetGetter("getBigDecimal", BigDecimal.class));
+      builder.put(byte[].class, resultSetGetter("getBytes", byte[].class));
+      builder.put(Date.class, resultSetGetter("getDate", Date.class));
+      builder.put(Time.class, resultSetGetter("getTime", Time.class));
+      builder.put(Timestamp.class, resultSetGetter("getTimestamp", Timestamp.class));
+      builder.put(Object.class, resultSetGetter("getObject", Object.class));
+      builder.put(Integer.class, nullableGetter("getInteger", Integer.class));
+      builder.put(Long.class, nullableGetter("getLong", Long.class));
+      builder.put(Double.class, nullableGetter("getDouble", Double.class));
+      builder.put(Float.class, nullableGetter("getFloat", Float.class));
+      builder.put(Short.class, nullableGetter("getShort", Short.class));
+      builder.put(Byte.class, nullableGetter("getByte", Byte.class));
+      builder.put(Boolean.class, nullableGetter("getBoolean", Boolean.class));
+    }
+    catch (final NoSuchMethodException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+    catch (final IllegalAccessException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+    GETTERS = builder.build();
+  }
+
+  private RowMappers() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Creates a mapper for rows of the given result set, reading its metadata.
+   */
+  public static <T> Function<ResultSet, T> forClass(@Nonnull final ResultSet result, @Nonnull final Class<T> type)
+      throws SQLException {
+    return forClass(result.getMetaData(), type);
+  }
+
+  /**
+   * Creates a mapper for rows described by the given metadata.
+   *
+   * @throws IllegalArgumentException
+   *           if the class has neither a public constructor taking one parameter per column nor a public no argument
+   *           constructor, a constructor parameter or setter takes a type with no getter, or the setter for a column
+   *           is overloaded for more than one supported type
+   */
+  public static <T> Function<ResultSet, T> forClass(@Nonnull final ResultSetMetaData metadata,
+      @Nonnull final Class<T> type) throws SQLException {
+    Preconditions.checkArgument(Modifier.isPublic(type.getModifiers()), "%s is not public", type);
+    final int columns = metadata.getColumnCount();
+    Constructor<?> allColumns = null;
+    for (final Constructor<?> constructor : type.getConstructors()) {
+      if (constructor.getParameterTypes().length == columns) {
+        Preconditions.checkArgument(null == allColumns, "%s has more than one constructor taking %s parameters", type,
+            columns);
+        allColumns = constructor;
+      }
+    }
+    try {
+      return null == allColumns ? setterMapper(metadata, type) : RowMappers.<T> constructorMapper(allColumns);
+    }
+    catch (final IllegalAccessException e) {
+      throw new IllegalArgumentException("Cannot access members of " + type, e);
+    }
+  }
+
+  private static <T> Function<ResultSet, T> constructorMapper(@Nonnull final Constructor<?> constructor)
+      throws IllegalAccessException {
+    final Class<?>[] parameters = constructor.getParameterTypes();
+    MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+    for (int i = 0; i < parameters.length; i++) {
+      handle = MethodHandles.filterArguments(handle, i, getter(parameters[i], i + 1));
+    }
+    handle = MethodHandles.permuteArguments(handle, MethodType.methodType(constructor.getDeclaringClass(),
+        ResultSet.class), new int[parameters.length]);
+    return new RowMapper<T>(handle.asType(MethodType.methodType(Object.class, ResultSet.class)));
+  }
+
+  private static <T> Function<ResultSet, T> setterMapper(@Nonnull final ResultSetMetaData metadata,
+      @Nonnull final Class<T> type) throws SQLException, IllegalAccessException {
+    final MethodHandle constructor;
+    try {
+      constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+    }
+    catch (final NoSuchMethodException e) {
+      throw new IllegalArgumentException(type + " has no public no argument constructor and no public constructor "
+          + "taking one parameter per column", e);
+    }
+    final ListMultimap<String, Method> setters = ArrayListMultimap.create();
+    for (final Method method : type.getMethods()) {
+      if (method.getName().startsWith("set") && 1 == method.getParameterTypes().length
+          && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()) {
+        setters.put(normalize(method.getName().substring("set".length())), method);
+      }
+    }
+    MethodHandle row = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1, ResultSet.class);
+    for (int column = metadata.getColumnCount(); column >= 1; column--) {
+      final Method setter = setter(type, setters.get(normalize(metadata.getColumnLabel(column))));
+      if (null != setter) {
+        row = MethodHandles.foldArguments(row, MethodHandles.filterArguments(LOOKUP.unreflect(setter), 1,
+            getter(setter.getParameterTypes()[0], column)).asType(
+            MethodType.methodType(void.class, Object.class, ResultSet.class)));
+      }
+    }
+    return new RowMapper<T>(MethodHandles.foldArguments(row, constructor.asType(MethodType.methodType(Object.class))));
+  }
+
+  /**
+   * Chooses among the setters for one column, preferring the only one taking a supported type.
+   */
+  @Nullable
+  private static Method setter(@Nonnull final Class<?> type, @Nonnull final List<Method> candidates) {
+    Method setter = null;
+    if (1 == candidates.size()) {
+      setter = candidates.get(0);
+    }
+    else if (!candidates.isEmpty()) {
+      for (final Method candidate : candidates) {
+        if (GETTERS.containsKey(candidate.getParameterTypes()[0])) {
+          Preconditions.checkArgument(null == setter, "%s has more than one setter for %s", type,
+              candidate.getName());
+          setter = candidate;
+        }
+      }
+      Preconditions.checkArgument(null != setter, "%s has no setter for %s taking a supported type", type,
+          candidates.get(0).getName());
+    }
+    return setter;
+  }
+
+  private static String normalize(@Nonnull final String name) {
+    return name.replace("_", "").toLowerCase(Locale.US);
+  }
+
+  /**
+   * Returns a handle of type {@code (ResultSet)type} reading the given column.
+   */
+  private static MethodHandle getter(@Nonnull final Class<?> type, final int column) {
+    final MethodHandle getter = GETTERS.get(type);
+    Preconditions.checkArgument(null != getter, "No getter for columns of type %s", type);
+    return MethodHandles.insertArguments(getter, 1, column);
+  }
+
+  private static MethodHandle resultSetGetter(@Nonnull final String name, @Nonnull final Class<?> type)
+      throws NoSuchMethodException, IllegalAccessException {
+    return LOOKUP.findVirtual(ResultSet.class, name, MethodType.methodType(type, int.class));
+  }
+
+  private static MethodHandle nullableGetter(@Nonnull final String name, @Nonnull final Class<?> type)
+      throws NoSuchMethodException, IllegalAccessException {
+    return LOOKUP.findStatic(RowMappers.class, name, MethodType.methodType(type, ResultSet.class, int.class));
+  }
+
+  @Nullable
+  static Integer getInteger(@Nonnull final ResultSet result, final int column) throws SQLException {
+    final int value = result.getInt(column);
+    return result.wasNull() ? null : value;
+  }
+
+  @Nullable
+  static Long getLong(@Nonnull final ResultSet result, final int column) throws SQLException {
+    final long value = result.getLong(column);
+    return result.wasNull() ? null : value;
+  }
+
+  @Nullable
+  static Double getDouble(@Nonnull final ResultSet result, final int column) throws SQLException {
+    final double value = result.getDouble(column);
+    return result.wasNull() ? null : value;
+  }
+
+  @Nullable
+  static Float getFloat(@Nonnull final ResultSet result, final int column) throws SQLException {
+    final float value = result.getFloat(column);
+    return result.wasNull() ? null : value;
+  }
+
+  @Nullable
+  static Short getShort(@Nonnull final ResultSet result, final int column) throws SQLException {
+    final short value = result.getShort(column);
+    return result.wasNull() ? null : value;
+  }
+
+  @Nullable
+  static Byte getByte(@Nonnull final ResultSet result, final int column) throws SQLException {
+    final byte value = result.getByte(column);
+    return result.wasNull() ? null : value;
+  }
+
+  @Nullable
+  static Boolean getBoolean(@Nonnull final ResultSet result, final int column) throws SQLException {
+    final boolean value = result.getBoolean(column);
+    return result.wasNull() ? null : value;
+  }
+
+  private static final class RowMapper<T> implements Function<ResultSet, T> {
+
+    /**
+     * Of type {@code (ResultSet)Object}, creating and populating the instance for the current row.
+     */
+    private final MethodHandle row;
+
+    RowMapper(@Nonnull final MethodHandle row) {
+      this.row = row;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T apply(final ResultSet input) {
+      try {
+        return null == input ? null : (T) (Object) row.invokeExact(input);
+      }
+      catch (final Throwable e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+}
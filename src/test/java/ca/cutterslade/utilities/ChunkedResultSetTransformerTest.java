@@ -0,0 +1,81 @@
+package ca.cutterslade.utilities;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class ChunkedResultSetTransformerTest {
+
+  private static List<Object[]> rows(final int count) {
+    final List<Object[]> rows = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      rows.add(new Object[] { i });
+    }
+    return rows;
+  }
+
+  @Test
+  public void testChunks() throws SQLException {
+    final ResultSet result = FakeResultSet.of(rows(10));
+    final ChunkedResultSetTransformer<Integer> chunks =
+        new ChunkedResultSetTransformer<Integer>(result, ResultSetTransformer.INTEGER_TRANSFORMER, 4);
+    Assert.assertEquals(4, result.getFetchSize());
+    Assert.assertEquals(ImmutableList.of(0, 1, 2, 3), chunks.next());
+    Assert.assertEquals(ImmutableList.of(4, 5, 6, 7), chunks.next());
+    Assert.assertEquals(ImmutableList.of(8, 9), chunks.next());
+    Assert.assertFalse(chunks.hasNext());
+  }
+
+  @Test
+  public void testChunksUnmodifiableAndRetained() {
+    final ChunkedResultSetTransformer<Integer> chunks = new ChunkedResultSetTransformer<Integer>(
+        FakeResultSet.of(rows(4)), ResultSetTransformer.INTEGER_TRANSFORMER, 2);
+    final List<Integer> first = chunks.next();
+    final List<Integer> second = chunks.next();
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(ImmutableList.of(0, 1), first);
+    try {
+      first.add(2);
+      Assert.fail("Expected UnsupportedOperationException");
+    }
+    catch (final UnsupportedOperationException e) {
+      Assert.assertEquals(2, first.size());
+    }
+  }
+
+  @Test
+  public void testRecycle() {
+    final ChunkedResultSetTransformer<String> chunks = new ChunkedResultSetTransformer<String>(
+        FakeResultSet.of(Arrays.asList(new Object[] { "a" }, new Object[] { null }, new Object[] { "c" })),
+        ResultSetTransformer.STRING_TRANSFORMER, 2);
+    final List<String> first = chunks.next();
+    Assert.assertEquals(Arrays.asList("a", null), first);
+    chunks.recycle(first);
+    final List<String> second = chunks.next();
+    Assert.assertSame(first, second);
+    Assert.assertEquals(ImmutableList.of("c"), second);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecycleForeignChunk() {
+    new ChunkedResultSetTransformer<Integer>(FakeResultSet.of(rows(1)), ResultSetTransformer.INTEGER_TRANSFORMER, 2)
+        .recycle(Lists.newArrayList(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecycleTwice() {
+    final ChunkedResultSetTransformer<Integer> chunks = new ChunkedResultSetTransformer<Integer>(
+        FakeResultSet.of(rows(1)), ResultSetTransformer.INTEGER_TRANSFORMER, 2);
+    final List<Integer> chunk = chunks.next();
+    chunks.recycle(chunk);
+    chunks.recycle(chunk);
+  }
+}
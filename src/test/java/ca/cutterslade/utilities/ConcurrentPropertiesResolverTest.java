@@ -0,0 +1,118 @@
+package ca.cutterslade.utilities;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class ConcurrentPropertiesResolverTest {
+
+  private static final int THREADS = 8;
+
+  private static final int SIZE = 5000;
+
+  private static final AtomicInteger FLAKY_CALLS = new AtomicInteger();
+
+  /**
+   * Fails on its first call and echoes its argument after that.
+   */
+  public static String flaky(final String argument) {
+    if (1 == FLAKY_CALLS.incrementAndGet()) {
+      throw new IllegalStateException("first call");
+    }
+    return argument;
+  }
+
+  @Test
+  public void testConcurrentResolution() throws Exception {
+    final ImmutableMap<String, String> properties = GeneratedProperties.generate(SIZE, 4, 42);
+    final ImmutableMap<String, String> expected = new PropertiesResolver(properties).getResolved();
+    final ConcurrentPropertiesResolver resolver = new ConcurrentPropertiesResolver(properties);
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<Map<String, String>>> futures = Lists.newArrayList();
+      for (int t = 0; t < THREADS; t++) {
+        final long seed = t;
+        futures.add(executor.submit(new Callable<Map<String, String>>() {
+
+          @Override
+          public Map<String, String> call() throws InterruptedException {
+            final Random random = new Random(seed);
+            final Map<String, String> seen = Maps.newHashMap();
+            start.await();
+            for (int i = 0; i < SIZE; i++) {
+              final String key = GeneratedProperties.key(SIZE - 1 - random.nextInt(SIZE));
+              seen.put(key, resolver.resolve(key));
+            }
+            return seen;
+          }
+        }));
+      }
+      start.countDown();
+      for (final Future<Map<String, String>> future : futures) {
+        for (final Map.Entry<String, String> entry : future.get().entrySet()) {
+          Assert.assertEquals(expected.get(entry.getKey()), entry.getValue());
+        }
+      }
+    }
+    finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    final int evaluated = resolver.getEvaluatedCount();
+    Assert.assertEquals(expected, resolver.getResolved());
+    Assert.assertTrue(evaluated <= SIZE);
+    Assert.assertEquals(SIZE, resolver.getEvaluatedCount());
+  }
+
+  @Test
+  public void testResolveUndefined() {
+    final ConcurrentPropertiesResolver resolver = new ConcurrentPropertiesResolver(ImmutableMap.of("a", "${b}"));
+    Assert.assertNull(resolver.resolve("b"));
+    Assert.assertEquals("${b}", resolver.resolve("a"));
+  }
+
+  @Test
+  public void testCircularReference() {
+    final ConcurrentPropertiesResolver resolver =
+        new ConcurrentPropertiesResolver(ImmutableMap.of("a", "${b}", "b", "${c}", "c", "${b}"));
+    try {
+      resolver.resolve("a");
+      Assert.fail();
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("Circular reference found on key b: b -> c -> b", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testFailureNotRemembered() {
+    final ConcurrentPropertiesResolver resolver = new ConcurrentPropertiesResolver(ImmutableMap.of("a",
+        "${$ca.cutterslade.utilities.ConcurrentPropertiesResolverTest.flaky('x')}", "b", "${a}"));
+    try {
+      resolver.resolve("b");
+      Assert.fail();
+    }
+    catch (final RuntimeException e) {
+      Assert.assertEquals(1, FLAKY_CALLS.get());
+    }
+    Assert.assertEquals("x", resolver.resolve("b"));
+    Assert.assertEquals("x", resolver.resolve("a"));
+    Assert.assertEquals(2, FLAKY_CALLS.get());
+  }
+}
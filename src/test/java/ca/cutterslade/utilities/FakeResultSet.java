@@ -0,0 +1,230 @@
+package ca.cutterslade.utilities;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * A {@link ResultSet} over rows held in memory, implemented with a {@link Proxy}. Supports moving forward with
+ * {@code next()}, reading columns by index or label with the {@code get} methods and {@code wasNull()},
+ * {@code getRow()}, basic metadata with column types taken from the values, the fetch size, and closing. Values are
+ * returned as stored when their type matches the getter, so reading them allocates nothing beyond the proxy's own
+ * argument array.
+ */
+final class FakeResultSet implements InvocationHandler {
+
+  private final List<String> labels;
+
+  private final Map<String, Integer> columns = Maps.newHashMap();
+
+  private final List<Object[]> rows;
+
+  private final long nextDelayMillis;
+
+  private volatile int row = -1;
+
+  private boolean wasNull;
+
+  private volatile boolean closed;
+
+  private int fetchSize;
+
+  private FakeResultSet(final List<String> labels, final List<Object[]> rows, final long nextDelayMillis) {
+    this.labels = labels;
+    for (int i = 0; i < labels.size(); i++) {
+      columns.put(labels.get(i).toUpperCase(Locale.US), i + 1);
+    }
+    this.rows = rows;
+    this.nextDelayMillis = nextDelayMillis;
+  }
+
+  static ResultSet of(final List<Object[]> rows) {
+    return of(rows, 0);
+  }
+
+  /**
+   * @param labels
+   *          the column labels reported by the metadata and accepted, without regard to case, by the getters taking a
+   *          column label
+   */
+  static ResultSet of(final List<String> labels, final List<Object[]> rows) {
+    return (ResultSet) Proxy.newProxyInstance(FakeResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+        new FakeResultSet(labels, rows, 0));
+  }
+
+  /**
+   * @param nextDelayMillis
+   *          how long each call to {@code next()} takes, standing in for waiting on the database
+   */
+  static ResultSet of(final List<Object[]> rows, final long nextDelayMillis) {
+    return (ResultSet) Proxy.newProxyInstance(FakeResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+        new FakeResultSet(ImmutableList.<String> of(), rows, nextDelayMillis));
+  }
+
+  @Override
+  public Object invoke(final Object proxy, final Method method, final Object[] args) throws SQLException {
+    final String name = method.getName();
+    final Object result;
+    if ("close".equals(name)) {
+      closed = true;
+      result = null;
+    }
+    else if ("isClosed".equals(name)) {
+      result = closed;
+    }
+    else if (closed) {
+      throw new SQLException("Result set is closed");
+    }
+    else if ("next".equals(name)) {
+      if (nextDelayMillis > 0) {
+        Uninterruptibles.sleepUninterruptibly(nextDelayMillis, TimeUnit.MILLISECONDS);
+      }
+      row = Math.min(row + 1, rows.size());
+      result = row < rows.size();
+    }
+    else if ("setFetchSize".equals(name)) {
+      fetchSize = (Integer) args[0];
+      result = null;
+    }
+    else if ("getFetchSize".equals(name)) {
+      result = fetchSize;
+    }
+    else if ("getRow".equals(name)) {
+      result = row < rows.size() ? row + 1 : 0;
+    }
+    else if ("wasNull".equals(name)) {
+      result = wasNull;
+    }
+    else if ("getMetaData".equals(name)) {
+      result = metaData();
+    }
+    else if (name.startsWith("get") && 1 == args.length && args[0] instanceof Integer) {
+      result = get(method.getReturnType(), (Integer) args[0]);
+    }
+    else if (name.startsWith("get") && 1 == args.length && args[0] instanceof String) {
+      result = get(method.getReturnType(), findColumn((String) args[0]));
+    }
+    else if ("findColumn".equals(name)) {
+      result = findColumn((String) args[0]);
+    }
+    else {
+      throw new UnsupportedOperationException(name);
+    }
+    return result;
+  }
+
+  private int findColumn(final String label) throws SQLException {
+    final Integer column = columns.get(label.toUpperCase(Locale.US));
+    if (null == column) {
+      throw new SQLException("No column " + label);
+    }
+    return column;
+  }
+
+  private ResultSetMetaData metaData() {
+    return (ResultSetMetaData) Proxy.newProxyInstance(FakeResultSet.class.getClassLoader(),
+        new Class<?>[] { ResultSetMetaData.class }, new InvocationHandler() {
+
+          @Override
+          public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final Object result;
+            if ("getColumnCount".equals(method.getName())) {
+              result = labels.size();
+            }
+            else if ("getColumnLabel".equals(method.getName()) || "getColumnName".equals(method.getName())) {
+              result = labels.get((Integer) args[0] - 1);
+            }
+            else if ("getColumnType".equals(method.getName())) {
+              result = columnType((Integer) args[0]);
+            }
+            else {
+              throw new UnsupportedOperationException(method.getName());
+            }
+            return result;
+          }
+        });
+  }
+
+  /**
+   * The SQL type of a column, taken from the class of its first non-null value.
+   */
+  private int columnType(final int column) {
+    Object value = null;
+    for (int i = 0; null == value && i < rows.size(); i++) {
+      value = rows.get(i)[column - 1];
+    }
+    final int type;
+    if (value instanceof Integer) {
+      type = Types.INTEGER;
+    }
+    else if (value instanceof Long) {
+      type = Types.BIGINT;
+    }
+    else if (value instanceof Double) {
+      type = Types.DOUBLE;
+    }
+    else if (value instanceof Float) {
+      type = Types.REAL;
+    }
+    else if (value instanceof BigDecimal) {
+      type = Types.DECIMAL;
+    }
+    else if (value instanceof Boolean) {
+      type = Types.BOOLEAN;
+    }
+    else {
+      type = Types.VARCHAR;
+    }
+    return type;
+  }
+
+  private Object get(final Class<?> type, final int column) throws SQLException {
+    if (row < 0 || row >= rows.size()) {
+      throw new SQLException("Not on a row");
+    }
+    final Object value = rows.get(row)[column - 1];
+    wasNull = null == value;
+    final Object result;
+    if (int.class == type) {
+      result = value instanceof Integer ? value : null == value ? 0 : ((Number) value).intValue();
+    }
+    else if (long.class == type) {
+      result = value instanceof Long ? value : null == value ? 0L : ((Number) value).longValue();
+    }
+    else if (double.class == type) {
+      result = value instanceof Double ? value : null == value ? 0.0 : ((Number) value).doubleValue();
+    }
+    else if (float.class == type) {
+      result = value instanceof Float ? value : null == value ? 0.0f : ((Number) value).floatValue();
+    }
+    else if (short.class == type) {
+      result = value instanceof Short ? value : null == value ? (short) 0 : ((Number) value).shortValue();
+    }
+    else if (byte.class == type) {
+      result = value instanceof Byte ? value : null == value ? (byte) 0 : ((Number) value).byteValue();
+    }
+    else if (boolean.class == type) {
+      result = null != value && (Boolean) value;
+    }
+    else if (String.class == type) {
+      result = null == value ? null : value.toString();
+    }
+    else {
+      result = value;
+    }
+    return result;
+  }
+}
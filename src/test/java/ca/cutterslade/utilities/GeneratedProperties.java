@@ -0,0 +1,63 @@
+package ca.cutterslade.utilities;
+
+import java.util.Random;
+
+import com.google.common.collect.ImmutableMap;
+
+final class GeneratedProperties {
+
+  private GeneratedProperties() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Generates {@code size} keys, each referencing up to {@code fanOut} keys with lower indexes, so the result is free
+   * of circular references. Some references are to undefined keys, some have defaults and some go through
+   * {@link BuiltinFunctions#ECHO}.
+   */
+  static ImmutableMap<String, String> generate(final int size, final int fanOut, final long seed) {
+    final Random random = new Random(seed);
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      final StringBuilder value = new StringBuilder("v").append(i);
+      final int references = 0 == i ? 0 : random.nextInt(fanOut + 1);
+      for (int r = 0; r < references; r++) {
+        final int target = random.nextInt(i);
+        switch (random.nextInt(4)) {
+          case 0:
+            value.append(" ${").append(key(target)).append('}');
+            break;
+          case 1:
+            value.append(" ${missing.").append(target).append(":d").append(target).append('}');
+            break;
+          case 2:
+            value.append(" ${$echo(").append(key(target)).append(",'lit',").append(key(random.nextInt(i)))
+                .append(")}");
+            break;
+          default:
+            value.append(" ${").append(key(target)).append(":unused}");
+            break;
+        }
+      }
+      builder.put(key(i), value.toString());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Generates a chain of {@code length} keys, each referencing the key before it either directly or as an argument of
+   * {@link BuiltinFunctions#ECHO}, ending in a key with the value {@code end}.
+   */
+  static ImmutableMap<String, String> chain(final int length) {
+    final ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+    builder.put(key(0), "end");
+    for (int i = 1; i < length; i++) {
+      builder.put(key(i), 0 == i % 2 ? "${" + key(i - 1) + "}" : "${$echo(" + key(i - 1) + ")}");
+    }
+    return builder.build();
+  }
+
+  static String key(final int index) {
+    return "key." + index;
+  }
+}
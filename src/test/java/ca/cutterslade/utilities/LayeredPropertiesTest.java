@@ -0,0 +1,83 @@
+package ca.cutterslade.utilities;
+
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+public class LayeredPropertiesTest {
+
+  private static final ImmutableMap<String, String> TOP = ImmutableMap.of("a", "top", "b", "${c}");
+
+  private static final ImmutableMap<String, String> MIDDLE = ImmutableMap.of("a", "middle", "c", "${d}");
+
+  private static final ImmutableMap<String, String> BOTTOM = ImmutableMap.of("a", "bottom", "d", "${a}", "e", "e");
+
+  private static Map<String, String> merged() {
+    final Map<String, String> merged = Maps.newHashMap(BOTTOM);
+    merged.putAll(MIDDLE);
+    merged.putAll(TOP);
+    return merged;
+  }
+
+  @Test
+  public void testLayerPriority() {
+    final LayeredProperties layered = LayeredProperties.of(TOP, MIDDLE, BOTTOM);
+    Assert.assertEquals(merged(), layered);
+    Assert.assertEquals(layered, merged());
+    Assert.assertEquals(merged().hashCode(), layered.hashCode());
+    Assert.assertEquals(5, layered.size());
+    Assert.assertEquals("top", layered.get("a"));
+    Assert.assertEquals("e", layered.get("e"));
+    Assert.assertNull(layered.get("f"));
+    Assert.assertFalse(layered.containsKey("f"));
+  }
+
+  @Test
+  public void testLayersShared() {
+    final LayeredProperties base = LayeredProperties.of(MIDDLE, BOTTOM);
+    final LayeredProperties overlaid = base.overlay(TOP);
+    Assert.assertEquals(3, overlaid.getLayers().size());
+    Assert.assertSame(TOP, overlaid.getLayers().get(0));
+    Assert.assertSame(MIDDLE, overlaid.getLayers().get(1));
+    Assert.assertSame(BOTTOM, overlaid.getLayers().get(2));
+    Assert.assertEquals(merged(), overlaid);
+  }
+
+  @Test
+  public void testLookupCache() {
+    final LayeredProperties cached = LayeredProperties.of(TOP, MIDDLE, BOTTOM).withLookupCache();
+    for (int i = 0; i < 2; i++) {
+      Assert.assertEquals("top", cached.get("a"));
+      Assert.assertEquals("e", cached.get("e"));
+      Assert.assertNull(cached.get("f"));
+      Assert.assertNull(cached.get(null));
+    }
+    Assert.assertEquals(merged(), cached);
+  }
+
+  @Test
+  public void testLookupCacheIgnoresMisses() {
+    final LayeredProperties cached = LayeredProperties.of(TOP, MIDDLE, BOTTOM).withLookupCache();
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertNull(cached.get("missing." + i));
+    }
+    Assert.assertEquals(0, cached.getLookupCacheSize());
+    cached.get("a");
+    cached.get("e");
+    Assert.assertEquals(2, cached.getLookupCacheSize());
+  }
+
+  @Test
+  public void testResolveLayers() {
+    final ImmutableMap<String, String> expected = PropertiesUtils.resolveProperties(merged());
+    Assert.assertEquals("top", expected.get("b"));
+    Assert.assertEquals(expected, PropertiesUtils.resolveProperties(ImmutableList.of(TOP, MIDDLE, BOTTOM)));
+    Assert.assertEquals(expected, PropertiesUtils.resolveProperties(LayeredProperties.of(TOP, MIDDLE, BOTTOM)));
+  }
+}
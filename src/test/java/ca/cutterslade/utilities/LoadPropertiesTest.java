@@ -176,4 +176,10 @@ public class LoadPropertiesTest {
   public void testResolve() throws IOException {
     Assert.assertEquals(resolved, PropertiesUtils.resolveProperties(PropertiesUtils.loadProperties(resource)));
   }
+
+  @Test
+  public void testResolveInParallel() throws IOException {
+    Assert.assertEquals(resolved,
+        PropertiesUtils.resolvePropertiesInParallel(PropertiesUtils.loadProperties(resource)));
+  }
 }
@@ -0,0 +1,148 @@
+package ca.cutterslade.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+public class MappedPropertiesTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndOpen() throws IOException {
+    final ImmutableMap<String, String> properties = ImmutableMap.<String, String> builder()
+        .putAll(GeneratedProperties.generate(1000, 2, 19))
+        .put("", "empty key").put("été", "summer").put("z", "").put("😀", "smile")
+        .put("Z", "upper").put("key", "v€")
+        .build();
+    final File file = folder.newFile("snapshot.bin");
+    MappedProperties.write(file, properties, ImmutableList.<URL> of());
+    final MappedProperties mapped = MappedProperties.open(file);
+    Assert.assertEquals(properties.size(), mapped.size());
+    for (final Map.Entry<String, String> entry : properties.entrySet()) {
+      Assert.assertEquals(entry.getValue(), mapped.get(entry.getKey()));
+    }
+    Assert.assertNull(mapped.get("key.1000"));
+    Assert.assertNull(mapped.get("ke"));
+    Assert.assertNull(mapped.get(1));
+    Assert.assertFalse(mapped.containsKey("é"));
+    Assert.assertEquals(properties, mapped);
+    Assert.assertEquals(mapped, properties);
+  }
+
+  @Test
+  public void testLoadResolvedProperties() throws IOException {
+    final File base = folder.newFile("base.properties");
+    final File overlay = folder.newFile("overlay.properties");
+    Files.write("a=base\nb=${a} ${c}\n", base, Charsets.ISO_8859_1);
+    Files.write("a=overlay\n", overlay, Charsets.ISO_8859_1);
+    final ImmutableList<URL> resources = ImmutableList.of(overlay.toURI().toURL(), base.toURI().toURL());
+    final File snapshot = new File(folder.getRoot(), "resolved.snapshot");
+
+    final Map<String, String> first = PropertiesUtils.loadResolvedProperties(snapshot, resources);
+    Assert.assertEquals(ImmutableMap.of("a", "overlay", "b", "overlay ${c}"), first);
+    Assert.assertFalse(first instanceof MappedProperties);
+    Assert.assertTrue(snapshot.isFile());
+
+    final Map<String, String> second = PropertiesUtils.loadResolvedProperties(snapshot, resources);
+    Assert.assertTrue(second instanceof MappedProperties);
+    Assert.assertEquals(first, second);
+    Assert.assertEquals(ImmutableList.of(resources.get(0).toExternalForm(), resources.get(1).toExternalForm()),
+        ((MappedProperties) second).getResources());
+
+    Files.write("a=base\nb=${a} ${c}\nc=see\n", base, Charsets.ISO_8859_1);
+    final Map<String, String> third = PropertiesUtils.loadResolvedProperties(snapshot, resources);
+    Assert.assertFalse(third instanceof MappedProperties);
+    Assert.assertEquals("overlay see", third.get("b"));
+    Assert.assertEquals(third, PropertiesUtils.loadResolvedProperties(snapshot, resources));
+    Assert.assertFalse(PropertiesUtils.loadResolvedProperties(snapshot, resources.reverse())
+        instanceof MappedProperties);
+  }
+
+  @Test
+  public void testCorruptSnapshotReplaced() throws IOException {
+    final File resource = folder.newFile("simple.properties");
+    Files.write("a=1\n", resource, Charsets.ISO_8859_1);
+    final File snapshot = folder.newFile("corrupt.snapshot");
+    Files.write("not a snapshot", snapshot, Charsets.ISO_8859_1);
+    final ImmutableList<URL> resources = ImmutableList.of(resource.toURI().toURL());
+    Assert.assertEquals(ImmutableMap.of("a", "1"), PropertiesUtils.loadResolvedProperties(snapshot, resources));
+    Assert.assertTrue(PropertiesUtils.loadResolvedProperties(snapshot, resources) instanceof MappedProperties);
+  }
+
+  @Test
+  public void testOutOfRangeOffsetReplaced() throws IOException {
+    final File resource = folder.newFile("simple.properties");
+    Files.write("a=1\nb=2\n", resource, Charsets.ISO_8859_1);
+    final File snapshot = new File(folder.getRoot(), "offsets.snapshot");
+    final ImmutableList<URL> resources = ImmutableList.of(resource.toURI().toURL());
+    PropertiesUtils.loadResolvedProperties(snapshot, resources);
+    final int table = 5 * 4 + resources.get(0).toExternalForm().getBytes(Charsets.UTF_8).length + 32 + 4;
+    final RandomAccessFile file = new RandomAccessFile(snapshot, "rw");
+    try {
+      file.seek(table + 4);
+      file.writeInt(Integer.MAX_VALUE - 2);
+    }
+    finally {
+      file.close();
+    }
+    final Map<String, String> reparsed = PropertiesUtils.loadResolvedProperties(snapshot, resources);
+    Assert.assertFalse(reparsed instanceof MappedProperties);
+    Assert.assertEquals(ImmutableMap.of("a", "1", "b", "2"), reparsed);
+    Assert.assertEquals(reparsed, PropertiesUtils.loadResolvedProperties(snapshot, resources));
+  }
+
+  @Test
+  public void testFailedWriteRemovesTemporaryFile() throws IOException {
+    final File target = folder.newFolder("occupied");
+    Files.touch(new File(target, "child"));
+    try {
+      MappedProperties.write(target, ImmutableMap.of("a", "1"), ImmutableList.<URL> of());
+      Assert.fail("Replaced a non-empty directory");
+    }
+    catch (final IOException e) {
+      Assert.assertEquals(ImmutableList.of("occupied"), ImmutableList.copyOf(folder.getRoot().list()));
+    }
+  }
+
+  @Test
+  public void testUnwritableSnapshotIgnored() throws IOException {
+    final File resource = folder.newFile("simple.properties");
+    Files.write("a=1\n", resource, Charsets.ISO_8859_1);
+    final File snapshot = folder.newFolder("snapshot");
+    Files.touch(new File(snapshot, "child"));
+    final ImmutableList<URL> resources = ImmutableList.of(resource.toURI().toURL());
+    Assert.assertEquals(ImmutableMap.of("a", "1"), PropertiesUtils.loadResolvedProperties(snapshot, resources));
+    Assert.assertTrue(snapshot.isDirectory());
+  }
+
+  @Test
+  public void testRepeatedResource() throws IOException {
+    final File resource = folder.newFile("simple.properties");
+    Files.write("a=1\n", resource, Charsets.ISO_8859_1);
+    final File snapshot = new File(folder.getRoot(), "repeated.snapshot");
+    final URL url = resource.toURI().toURL();
+    final ImmutableList<URL> resources = ImmutableList.of(url, url);
+    Assert.assertEquals(ImmutableMap.of("a", "1"), PropertiesUtils.loadResolvedProperties(snapshot, resources));
+    final Map<String, String> mapped = PropertiesUtils.loadResolvedProperties(snapshot, resources);
+    Assert.assertTrue(mapped instanceof MappedProperties);
+    Assert.assertEquals(ImmutableList.of(url.toExternalForm(), url.toExternalForm()),
+        ((MappedProperties) mapped).getResources());
+    Assert.assertFalse(PropertiesUtils.loadResolvedProperties(snapshot, ImmutableList.of(url))
+        instanceof MappedProperties);
+  }
+}
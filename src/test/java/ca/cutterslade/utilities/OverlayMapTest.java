@@ -0,0 +1,55 @@
+package ca.cutterslade.utilities;
+
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+public class OverlayMapTest {
+
+  @Test
+  public void testRandomChangesMatchHashMap() {
+    final Random random = new Random(31);
+    final Map<Integer, String> expected = Maps.newHashMap();
+    for (int i = 0; i < 1000; i++) {
+      expected.put(i, "v" + i);
+    }
+    OverlayMap<Integer, String> map = OverlayMap.of(ImmutableMap.copyOf(expected));
+    for (int round = 0; round < 500; round++) {
+      final Map<Integer, String> changes = Maps.newHashMap();
+      for (int c = 1 + random.nextInt(random.nextBoolean() ? 3 : 100); c > 0; c--) {
+        final int key = random.nextInt(1500);
+        changes.put(key, random.nextInt(3) == 0 ? null : "r" + round);
+      }
+      final OverlayMap<Integer, String> previous = map;
+      final Map<Integer, String> previousExpected = Maps.newHashMap(expected);
+      map = map.with(changes);
+      for (final Map.Entry<Integer, String> entry : changes.entrySet()) {
+        if (null == entry.getValue()) {
+          expected.remove(entry.getKey());
+        }
+        else {
+          expected.put(entry.getKey(), entry.getValue());
+        }
+      }
+      Assert.assertEquals(expected, map);
+      Assert.assertEquals(expected.size(), map.size());
+      Assert.assertEquals(expected.size(), Maps.newHashMap(map).size());
+      Assert.assertEquals("Changes do not affect the previous map", previousExpected, previous);
+      Assert.assertTrue("Depth " + map.getDepth(), map.getDepth() <= 12);
+    }
+  }
+
+  @Test
+  public void testUnchanged() {
+    final OverlayMap<String, String> map = OverlayMap.of(ImmutableMap.of("a", "b"));
+    Assert.assertSame(map, map.with(ImmutableMap.<String, String> of()));
+    Assert.assertNull(map.get(null));
+    Assert.assertFalse(map.containsKey(null));
+  }
+}
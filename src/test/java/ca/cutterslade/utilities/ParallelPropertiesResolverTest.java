@@ -0,0 +1,49 @@
+package ca.cutterslade.utilities;
+
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class ParallelPropertiesResolverTest {
+
+  @Test
+  public void testMatchesSequentialResolution() {
+    final ImmutableMap<String, String> properties = GeneratedProperties.generate(20000, 3, 7);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final ParallelPropertiesResolver resolver = new ParallelPropertiesResolver(properties, pool);
+      Assert.assertTrue(resolver.isParallel());
+      Assert.assertEquals(PropertiesUtils.resolveProperties(properties), resolver.getResolved());
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testForcedSequential() {
+    final ImmutableMap<String, String> properties = GeneratedProperties.generate(2000, 3, 11);
+    final ParallelPropertiesResolver resolver = new ParallelPropertiesResolver(properties, false);
+    Assert.assertFalse(resolver.isParallel());
+    Assert.assertEquals(PropertiesUtils.resolveProperties(properties), resolver.getResolved());
+  }
+
+  @Test
+  public void testAllCyclesReported() {
+    final ImmutableMap<String, String> properties = ImmutableMap.<String, String> builder()
+        .put("a", "${b}").put("b", "${a}").put("c", "${c}").put("d", "${a} ${e}").put("e", "ok")
+        .put("f", "${g}").put("g", "${h}").put("h", "${f}")
+        .build();
+    try {
+      new ParallelPropertiesResolver(properties).getResolved();
+      Assert.fail();
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("Circular references found among keys: [a, b], [c], [f, g, h]", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package ca.cutterslade.utilities;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class ParallelResultSetTransformerTest {
+
+  private static final ImmutableList<String> LABELS = ImmutableList.of("id", "name");
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+
+  @After
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  private static List<Object[]> rows(final int count) {
+    final List<Object[]> rows = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      rows.add(new Object[] { i, "row" + i });
+    }
+    return rows;
+  }
+
+  private static Function<List<Object>, String> describe(final long sleepMillis) {
+    return new Function<List<Object>, String>() {
+
+      @Override
+      public String apply(final List<Object> row) {
+        Uninterruptibles.sleepUninterruptibly(sleepMillis, TimeUnit.MILLISECONDS);
+        return row.get(0) + ":" + row.get(1);
+      }
+    };
+  }
+
+  @Test(timeout = 30000)
+  public void testRowsInOrder() throws SQLException {
+    final ParallelResultSetTransformer<String> rows = new ParallelResultSetTransformer<String>(
+        FakeResultSet.of(LABELS, rows(1000)), describe(0), 7, 3, true, pool);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertTrue(rows.hasNext());
+      Assert.assertEquals(i + ":row" + i, rows.next());
+    }
+    Assert.assertFalse(rows.hasNext());
+    Assert.assertFalse(rows.hasNext());
+    rows.close();
+  }
+
+  @Test(timeout = 30000)
+  public void testUnorderedReturnsEveryRow() throws SQLException {
+    final ParallelResultSetTransformer<String> rows = new ParallelResultSetTransformer<String>(
+        FakeResultSet.of(LABELS, rows(1000)), describe(0), 10, 4, false, pool);
+    final Set<String> seen = Sets.newHashSet();
+    while (rows.hasNext()) {
+      Assert.assertTrue(seen.add(rows.next()));
+    }
+    Assert.assertEquals(1000, seen.size());
+    Assert.assertTrue(seen.contains("999:row999"));
+  }
+
+  @Test(timeout = 30000)
+  public void testEmpty() throws SQLException {
+    final ParallelResultSetTransformer<String> rows = new ParallelResultSetTransformer<String>(
+        FakeResultSet.of(LABELS, rows(0)), describe(0), 10, 4, true, pool);
+    Assert.assertFalse(rows.hasNext());
+  }
+
+  @Test(timeout = 30000)
+  public void testInFlightBound() throws SQLException {
+    final ResultSet result = FakeResultSet.of(LABELS, rows(100));
+    final ParallelResultSetTransformer<String> rows =
+        new ParallelResultSetTransformer<String>(result, describe(0), 5, 2, true, pool);
+    Assert.assertEquals("0:row0", rows.next());
+    Assert.assertTrue("Read ahead to row " + result.getRow(), result.getRow() <= 15);
+    for (int i = 1; i < 50; i++) {
+      rows.next();
+    }
+    Assert.assertTrue("Read ahead to row " + result.getRow(), result.getRow() <= 65);
+    rows.close();
+  }
+
+  @Test(timeout = 30000)
+  public void testErrorAfterEarlierRows() throws SQLException {
+    final ParallelResultSetTransformer<Integer> rows = new ParallelResultSetTransformer<Integer>(
+        FakeResultSet.of(LABELS, rows(100)), new Function<List<Object>, Integer>() {
+
+          @Override
+          public Integer apply(final List<Object> row) {
+            final int id = (Integer) row.get(0);
+            if (42 == id) {
+              throw new IllegalStateException("bad row");
+            }
+            return id;
+          }
+        }, 4, 3, true, pool);
+    for (int i = 0; i < 42; i++) {
+      Assert.assertEquals(Integer.valueOf(i), rows.next());
+    }
+    try {
+      rows.next();
+      Assert.fail();
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("bad row", e.getMessage());
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testClose() throws SQLException {
+    final ResultSet result = FakeResultSet.of(LABELS, rows(100));
+    final ParallelResultSetTransformer<String> rows =
+        new ParallelResultSetTransformer<String>(result, describe(1), 5, 4, true, pool);
+    rows.next();
+    rows.close();
+    Assert.assertTrue(result.isClosed());
+    try {
+      rows.hasNext();
+      Assert.fail();
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("Transformer has been closed", e.getMessage());
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testTransformsConcurrently() throws SQLException {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final ParallelResultSetTransformer<Integer> rows = new ParallelResultSetTransformer<Integer>(
+        FakeResultSet.of(LABELS, rows(80)), new Function<List<Object>, Integer>() {
+
+          @Override
+          public Integer apply(final List<Object> row) {
+            final int now = running.incrementAndGet();
+            int max = maxRunning.get();
+            while (now > max && !maxRunning.compareAndSet(max, now)) {
+              max = maxRunning.get();
+            }
+            Uninterruptibles.sleepUninterruptibly(5, TimeUnit.MILLISECONDS);
+            running.decrementAndGet();
+            return (Integer) row.get(0);
+          }
+        }, 2, 8, true, pool);
+    int expected = 0;
+    while (rows.hasNext()) {
+      Assert.assertEquals(Integer.valueOf(expected++), rows.next());
+    }
+    Assert.assertEquals(80, expected);
+    Assert.assertTrue("At most " + maxRunning.get() + " rows transformed at once", maxRunning.get() > 1);
+  }
+
+  @Test(timeout = 30000)
+  public void testErrorFinishes() throws SQLException {
+    final ResultSet result = FakeResultSet.of(LABELS, rows(100));
+    final ParallelResultSetTransformer<String> rows = new ParallelResultSetTransformer<String>(result,
+        new Function<List<Object>, String>() {
+
+          @Override
+          public String apply(final List<Object> row) {
+            throw new IllegalStateException("bad row");
+          }
+        }, 4, 3, false, pool);
+    try {
+      rows.hasNext();
+      Assert.fail();
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("bad row", e.getMessage());
+    }
+    Assert.assertTrue(result.isClosed());
+    Assert.assertFalse(rows.hasNext());
+  }
+
+  /**
+   * A result set failing on the call to {@code next()} for the given row, and counting the calls made after that.
+   */
+  private static ResultSet failingAt(final int failingRow, final AtomicInteger callsAfterFailure) {
+    final ResultSet delegate = FakeResultSet.of(LABELS, rows(100));
+    return (ResultSet) Proxy.newProxyInstance(ParallelResultSetTransformerTest.class.getClassLoader(),
+        new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+
+          private int row;
+
+          @Override
+          public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            if ("next".equals(method.getName()) && ++row >= failingRow) {
+              if (row > failingRow) {
+                callsAfterFailure.incrementAndGet();
+              }
+              throw new SQLException("connection lost");
+            }
+            try {
+              return method.invoke(delegate, args);
+            }
+            catch (final InvocationTargetException e) {
+              throw e.getCause();
+            }
+          }
+        });
+  }
+
+  @Test(timeout = 30000)
+  public void testCursorErrorAfterEarlierRows() throws SQLException {
+    final AtomicInteger callsAfterFailure = new AtomicInteger();
+    final ResultSet result = failingAt(11, callsAfterFailure);
+    final ParallelResultSetTransformer<String> rows =
+        new ParallelResultSetTransformer<String>(result, describe(0), 4, 3, true, pool);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(i + ":row" + i, rows.next());
+    }
+    try {
+      rows.hasNext();
+      Assert.fail();
+    }
+    catch (final RuntimeException e) {
+      Assert.assertEquals("connection lost", e.getCause().getMessage());
+    }
+    Assert.assertFalse(rows.hasNext());
+    Assert.assertTrue(result.isClosed());
+    Assert.assertEquals(0, callsAfterFailure.get());
+  }
+}
@@ -0,0 +1,119 @@
+package ca.cutterslade.utilities;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class PrefetchingResultSetTransformerTest {
+
+  private static List<Object[]> rows(final int count) {
+    final List<Object[]> rows = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      rows.add(new Object[] { i });
+    }
+    return rows;
+  }
+
+  @Test(timeout = 30000)
+  public void testRowsInOrder() {
+    final PrefetchingResultSetTransformer<Integer> rows = new PrefetchingResultSetTransformer<Integer>(
+        FakeResultSet.of(rows(1000)), ResultSetTransformer.INTEGER_TRANSFORMER, 3);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertTrue(rows.hasNext());
+      Assert.assertEquals(Integer.valueOf(i), rows.next());
+    }
+    Assert.assertFalse(rows.hasNext());
+    Assert.assertFalse(rows.hasNext());
+    rows.close();
+  }
+
+  @Test(timeout = 30000)
+  public void testNullValues() {
+    final PrefetchingResultSetTransformer<String> rows = new PrefetchingResultSetTransformer<String>(
+        FakeResultSet.of(ImmutableList.of(new Object[] { null }, new Object[] { "b" })),
+        ResultSetTransformer.STRING_TRANSFORMER, 1);
+    Assert.assertNull(rows.next());
+    Assert.assertEquals("b", rows.next());
+    Assert.assertFalse(rows.hasNext());
+  }
+
+  @Test(timeout = 30000)
+  public void testBackpressure() throws SQLException {
+    final ResultSet result = FakeResultSet.of(rows(100));
+    final PrefetchingResultSetTransformer<Integer> rows =
+        new PrefetchingResultSetTransformer<Integer>(result, ResultSetTransformer.INTEGER_TRANSFORMER, 2);
+    Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(Integer.valueOf(0), rows.next());
+    Assert.assertTrue("Reader ran ahead to row " + result.getRow(), result.getRow() <= 4);
+    rows.close();
+  }
+
+  @Test(timeout = 30000)
+  public void testErrorAfterEarlierRows() {
+    final PrefetchingResultSetTransformer<Integer> rows = new PrefetchingResultSetTransformer<Integer>(
+        FakeResultSet.of(rows(10)), new Function<ResultSet, Integer>() {
+
+          @Override
+          public Integer apply(final ResultSet input) {
+            final Integer value = ResultSetTransformer.INTEGER_TRANSFORMER.apply(input);
+            if (3 == value) {
+              throw new IllegalStateException("bad row " + value);
+            }
+            return value;
+          }
+        }, 5);
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(Integer.valueOf(i), rows.next());
+    }
+    try {
+      rows.hasNext();
+      Assert.fail("Expected IllegalStateException");
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("bad row 3", e.getMessage());
+    }
+    Assert.assertFalse(rows.hasNext());
+  }
+
+  @Test(timeout = 30000)
+  public void testCloseStopsReader() throws SQLException {
+    final ResultSet result = FakeResultSet.of(rows(1000), 1);
+    final PrefetchingResultSetTransformer<Integer> rows =
+        new PrefetchingResultSetTransformer<Integer>(result, ResultSetTransformer.INTEGER_TRANSFORMER, 2);
+    Assert.assertEquals(Integer.valueOf(0), rows.next());
+    rows.close();
+    Assert.assertTrue(result.isClosed());
+    try {
+      rows.hasNext();
+      Assert.fail("Expected IllegalStateException");
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("Transformer has been closed", e.getMessage());
+    }
+  }
+
+  @Test(timeout = 30000)
+  public void testReadingOverlapsProcessing() {
+    final long delay = 20;
+    final int count = 20;
+    final PrefetchingResultSetTransformer<Integer> rows = new PrefetchingResultSetTransformer<Integer>(
+        FakeResultSet.of(rows(count), delay), ResultSetTransformer.INTEGER_TRANSFORMER, 4);
+    final long start = System.nanoTime();
+    while (rows.hasNext()) {
+      rows.next();
+      Uninterruptibles.sleepUninterruptibly(delay, TimeUnit.MILLISECONDS);
+    }
+    final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertTrue("Took " + elapsed + "ms", elapsed < 2 * count * delay * 3 / 4);
+  }
+}
@@ -0,0 +1,123 @@
+package ca.cutterslade.utilities;
+
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class PrimitiveResultSetIteratorTest {
+
+  private static final int BENCHMARK_ROWS = 100000;
+
+  private static final int BENCHMARK_ROUNDS = 20;
+
+  private static List<Object[]> rows(final Object... values) {
+    final List<Object[]> rows = Lists.newArrayListWithCapacity(values.length);
+    for (final Object value : values) {
+      rows.add(new Object[] { value });
+    }
+    return rows;
+  }
+
+  @Test
+  public void testNextWithNulls() {
+    final PrimitiveResultSetIterator iterator =
+        new PrimitiveResultSetIterator(FakeResultSet.of(rows(1, null, 3L, 4.5)));
+    Assert.assertEquals(1, iterator.nextInt());
+    Assert.assertFalse(iterator.wasNull());
+    Assert.assertEquals(0L, iterator.nextLong());
+    Assert.assertTrue(iterator.wasNull());
+    Assert.assertEquals(3L, iterator.nextLong());
+    Assert.assertFalse(iterator.wasNull());
+    Assert.assertTrue(iterator.hasNext());
+    Assert.assertEquals(4.5, iterator.nextDouble(), 0);
+    Assert.assertFalse(iterator.hasNext());
+    try {
+      iterator.nextInt();
+      Assert.fail("Expected NoSuchElementException");
+    }
+    catch (final NoSuchElementException e) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test
+  public void testFillInto() {
+    final PrimitiveResultSetIterator iterator =
+        new PrimitiveResultSetIterator(FakeResultSet.of(rows(1, 2, null, 4, 5, 6, 7)));
+    final int[] buffer = new int[4];
+    final BitSet nulls = new BitSet();
+    Assert.assertEquals(3, iterator.fillInto(buffer, 1, 3, nulls));
+    Assert.assertTrue(Arrays.equals(new int[] { 0, 1, 2, 0 }, buffer));
+    Assert.assertEquals(3, nulls.nextSetBit(0));
+    Assert.assertEquals(4, iterator.nextInt());
+    final long[] longs = new long[5];
+    Assert.assertEquals(3, iterator.fillInto(longs));
+    Assert.assertTrue(Arrays.equals(new long[] { 5, 6, 7, 0, 0 }, longs));
+    Assert.assertEquals(0, iterator.fillInto(new double[2]));
+  }
+
+  @Test
+  public void testMultipleColumns() {
+    final List<Object[]> rows = ImmutableList.of(new Object[] { "a", 1.5 }, new Object[] { "b", 2.5 });
+    final double[] buffer = new double[3];
+    Assert.assertEquals(2, new PrimitiveResultSetIterator(FakeResultSet.of(rows), 2).fillInto(buffer));
+    Assert.assertTrue(Arrays.equals(new double[] { 1.5, 2.5, 0 }, buffer));
+  }
+
+  /**
+   * Compares the bytes allocated per row by {@link ResultSetTransformer#INTEGER_TRANSFORMER} and by
+   * {@link PrimitiveResultSetIterator#fillInto(int[])}, over values too large for the {@link Integer} cache. The fake
+   * result set allocates an argument array per call, which both paths share. Each boxed value is stored where it
+   * escapes, as it would in a consumer, so that it cannot be optimized away.
+   */
+  @Test
+  public void testAllocationBenchmark() {
+    final Object[] values = new Object[BENCHMARK_ROWS];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 1000 + i;
+    }
+    final List<Object[]> rows = rows(values);
+    long boxed = Long.MAX_VALUE;
+    long primitive = Long.MAX_VALUE;
+    final int[] buffer = new int[1024];
+    final Integer[] sink = new Integer[1];
+    for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+      final ResultSet boxedResult = FakeResultSet.of(rows);
+      long start = allocatedBytes();
+      long sum = 0;
+      for (final ResultSetTransformer<Integer> iterator =
+          new ResultSetTransformer<Integer>(boxedResult, ResultSetTransformer.INTEGER_TRANSFORMER); iterator
+          .hasNext();) {
+        sink[0] = iterator.next();
+        sum += sink[0];
+      }
+      boxed = Math.min(boxed, allocatedBytes() - start);
+      final ResultSet primitiveResult = FakeResultSet.of(rows);
+      start = allocatedBytes();
+      final PrimitiveResultSetIterator iterator = new PrimitiveResultSetIterator(primitiveResult);
+      for (int count = iterator.fillInto(buffer); count > 0; count = iterator.fillInto(buffer)) {
+        for (int i = 0; i < count; i++) {
+          sum -= buffer[i];
+        }
+      }
+      primitive = Math.min(primitive, allocatedBytes() - start);
+      Assert.assertEquals(0, sum);
+    }
+    Assert.assertTrue("boxed " + boxed + " bytes, primitive " + primitive + " bytes", primitive < boxed);
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread
+        .currentThread().getId());
+  }
+}
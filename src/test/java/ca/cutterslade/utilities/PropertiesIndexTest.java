@@ -0,0 +1,141 @@
+package ca.cutterslade.utilities;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class PropertiesIndexTest {
+
+  private static final ImmutableList<String> SEGMENTS = ImmutableList.of("db", "pool", "url", "a", "ab", "b", "");
+
+  @Test
+  public void testNamespaces() {
+    final PropertiesIndex index = PropertiesIndex.of(ImmutableMap.of("db.pool.size", "10", "db.pool.max", "20",
+        "db.url", "jdbc:x", "dbx", "other", "db.", "root"));
+    Assert.assertEquals(ImmutableMap.of("size", "10", "max", "20"), index.getNamespace("db.pool."));
+    Assert.assertEquals(ImmutableMap.of("size", "10", "max", "20"), index.getNamespace("db.").getNamespace("pool."));
+    Assert.assertEquals(ImmutableMap.of("pool.size", "10", "pool.max", "20", "url", "jdbc:x", "", "root"),
+        index.getNamespace("db."));
+    Assert.assertEquals("10", index.getNamespace("db.").get("pool.size"));
+    Assert.assertNull(index.getNamespace("db.").get("dbx"));
+    Assert.assertFalse(index.getNamespace("db.").containsKey("pool."));
+    Assert.assertTrue(index.getNamespace("missing.").isEmpty());
+    Assert.assertEquals(index, index.getNamespace(""));
+  }
+
+  @Test
+  public void testRandomNamespacesMatchScan() {
+    final Random random = new Random(15);
+    final Map<String, String> properties = Maps.newHashMap();
+    for (int i = 0; i < 2000; i++) {
+      properties.put(randomKey(random), Integer.toString(i));
+    }
+    final PropertiesIndex index = PropertiesIndex.of(properties);
+    Assert.assertEquals(properties, index);
+    for (int i = 0; i < 500; i++) {
+      final String source = randomKey(random);
+      final String prefix = source.substring(0, random.nextInt(source.length() + 1));
+      final Map<String, String> expected = Maps.newHashMap();
+      for (final Map.Entry<String, String> entry : properties.entrySet()) {
+        if (entry.getKey().startsWith(prefix)) {
+          expected.put(entry.getKey().substring(prefix.length()), entry.getValue());
+        }
+      }
+      final PropertiesIndex namespace = index.getNamespace(prefix);
+      Assert.assertEquals(prefix, expected, namespace);
+      Assert.assertEquals(expected.size(), namespace.size());
+      for (final String key : expected.keySet()) {
+        Assert.assertEquals(expected.get(key), namespace.get(key));
+      }
+    }
+  }
+
+  @Test
+  public void testSystemPropertiesView() {
+    final Map<String, String> system = PropertiesUtils.systemPropertiesView();
+    Assert.assertEquals(System.getProperty("java.version"), system.get("sys.java.version"));
+    Assert.assertNull(system.get("java.version"));
+    System.setProperty("properties.index.test", "later");
+    try {
+      Assert.assertEquals("later", system.get("sys.properties.index.test"));
+      Assert.assertEquals("later", PropertiesIndex.of(system).getNamespace("sys.properties.").get("index.test"));
+    }
+    finally {
+      System.clearProperty("properties.index.test");
+    }
+    Assert.assertFalse(system.containsKey("sys.properties.index.test"));
+    Assert.assertEquals(System.getenv().size(), PropertiesUtils.environmentPropertiesView().size());
+  }
+
+  @Test
+  public void testCopies() {
+    final ImmutableMap<String, String> system = PropertiesUtils.systemProperties();
+    Assert.assertEquals(System.getProperty("java.version"), system.get("sys.java.version"));
+    Assert.assertEquals(ImmutableMap.copyOf(PropertiesUtils.environmentPropertiesView()),
+        PropertiesUtils.environmentProperties());
+  }
+
+  @Test
+  public void testLayeredViewIsLive() {
+    final LayeredProperties layered =
+        LayeredProperties.of(ImmutableList.of(ImmutableMap.of("a", "b"), PropertiesUtils.systemPropertiesView()));
+    Assert.assertSame(PrefixedProperties.class, layered.getLayers().get(1).getClass());
+    Assert.assertFalse(Sets.newHashSet(layered.keySet()).contains("sys.properties.index.layered"));
+    System.setProperty("properties.index.layered", "set");
+    try {
+      Assert.assertEquals("set", layered.get("sys.properties.index.layered"));
+      Assert.assertTrue(Sets.newHashSet(layered.keySet()).contains("sys.properties.index.layered"));
+      Assert.assertEquals("set", new PropertiesResolver(layered).resolve("sys.properties.index.layered"));
+    }
+    finally {
+      System.clearProperty("properties.index.layered");
+    }
+    Assert.assertFalse(Sets.newHashSet(layered.keySet()).contains("sys.properties.index.layered"));
+  }
+
+  @Test(timeout = 30000)
+  public void testIterateWhileSetting() throws InterruptedException {
+    final AtomicBoolean done = new AtomicBoolean();
+    final Thread setter = new Thread() {
+
+      @Override
+      public void run() {
+        for (int i = 0; !done.get(); i++) {
+          System.setProperty("properties.index.churn." + i % 100, "v");
+          System.clearProperty("properties.index.churn." + (i + 50) % 100);
+        }
+      }
+    };
+    setter.start();
+    try {
+      final Map<String, String> system = PropertiesUtils.systemPropertiesView();
+      for (int i = 0; i < 2000; i++) {
+        Assert.assertTrue(system.size() > 0);
+      }
+    }
+    finally {
+      done.set(true);
+      setter.join();
+      for (int i = 0; i < 100; i++) {
+        System.clearProperty("properties.index.churn." + i);
+      }
+    }
+  }
+
+  private static String randomKey(final Random random) {
+    final StringBuilder key = new StringBuilder();
+    for (int segments = 1 + random.nextInt(3); segments > 0; segments--) {
+      key.append(SEGMENTS.get(random.nextInt(SEGMENTS.size()))).append('.');
+    }
+    return key.append(random.nextInt(10)).toString();
+  }
+}
@@ -0,0 +1,145 @@
+package ca.cutterslade.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+public class PropertiesParserTest {
+
+  private static final ImmutableList<String> CASES = ImmutableList.of(
+      "",
+      "a=b",
+      "a = b",
+      "a:b",
+      "a b",
+      "a\tb\n",
+      "a\fb",
+      "   a = b   ",
+      "a==b",
+      "a=:b",
+      "a :=b",
+      "a",
+      "a=",
+      "=b",
+      ":",
+      "# comment\na=b\n! other\n  # indented comment\n",
+      "a=b # not a comment",
+      "a=b\\\n   c\n",
+      "a=b\\\r\n   c\r\n",
+      "a=b\\\r   c\r",
+      "a=b\\\\\nc=d",
+      "a=b\\\\\\\nc",
+      "a=b\\",
+      "a=b\\\n",
+      "a=b\\\n# not a comment\n",
+      "\\\n#comment\n",
+      "\\\n\nb=c",
+      "# comment \\\na=b",
+      "a\\ b=c",
+      "a\\=b=c",
+      "a\\:b:c",
+      "a=\\t\\n\\r\\f\\x\\\\",
+      "a=\\u0041\\u00e9\\u20AC",
+      "\\u0061=b",
+      "a=1\na=2",
+      "a=1\r\n\r\nb=2\r\n",
+      "a=1\r\rb=2",
+      "\n\n\na=1\n\n",
+      "a=\u00e9\u00ff",
+      "  \\  a = b",
+      "key.with.dots=${other}",
+      "a=b\\\n\\\n\\\nc");
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static Map<String, String> expected(final byte[] bytes) throws IOException {
+    final Properties properties = new Properties();
+    properties.load(new ByteArrayInputStream(bytes));
+    return Maps.fromProperties(properties);
+  }
+
+  private static void assertConforms(final byte[] bytes) throws IOException {
+    Map<String, String> expected;
+    try {
+      expected = expected(bytes);
+    }
+    catch (final IllegalArgumentException e) {
+      expected = null;
+    }
+    Map<String, String> actual;
+    try {
+      actual = PropertiesParser.parse(ByteBuffer.wrap(bytes));
+    }
+    catch (final IllegalArgumentException e) {
+      actual = null;
+    }
+    Assert.assertEquals(new String(bytes, Charsets.ISO_8859_1), expected, actual);
+  }
+
+  @Test
+  public void testCases() throws IOException {
+    for (final String properties : CASES) {
+      assertConforms(properties.getBytes(Charsets.ISO_8859_1));
+    }
+  }
+
+  @Test
+  public void testMalformedUnicode() throws IOException {
+    for (final String properties : ImmutableList.of("a=\\u", "a=\\u12", "a=\\u12g4", "a\\u004=b", "a=\\u12\\\n34")) {
+      assertConforms(properties.getBytes(Charsets.ISO_8859_1));
+    }
+  }
+
+  @Test
+  public void testRandom() throws IOException {
+    final byte[] alphabet = "ab =:\\\\\t\f\n\r#!u0Fe\u00e9 ".getBytes(Charsets.ISO_8859_1);
+    final Random random = new Random(1);
+    for (int i = 0; i < 20000; i++) {
+      final byte[] bytes = new byte[random.nextInt(40)];
+      for (int b = 0; b < bytes.length; b++) {
+        bytes[b] = alphabet[random.nextInt(alphabet.length)];
+      }
+      assertConforms(bytes);
+    }
+  }
+
+  @Test
+  public void testLargeFile() throws IOException {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      builder.append("key.").append(i).append(" = value \\\n    ").append(i).append("\\u00e9\n");
+      if (0 == i % 100) {
+        builder.append("# comment ").append(i).append('\n');
+      }
+    }
+    final byte[] bytes = builder.toString().getBytes(Charsets.ISO_8859_1);
+    final File file = folder.newFile("large.properties");
+    Files.write(bytes, file);
+    Assert.assertEquals(expected(bytes), PropertiesUtils.loadProperties(file.toURI().toURL()));
+    Assert.assertEquals("value 42\u00e9", PropertiesUtils.loadProperties(file.toURI().toURL()).get("key.42"));
+  }
+
+  @Test
+  public void testSmallFile() throws IOException {
+    final byte[] bytes = "a=b\\\n  c\n#x\nd:e".getBytes(Charsets.ISO_8859_1);
+    final File file = folder.newFile("small.properties");
+    Files.write(bytes, file);
+    Assert.assertEquals(expected(bytes), PropertiesUtils.loadProperties(file.toURI().toURL()));
+  }
+}
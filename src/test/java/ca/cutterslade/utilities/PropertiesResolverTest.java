@@ -0,0 +1,281 @@
+package ca.cutterslade.utilities;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class PropertiesResolverTest {
+
+  private static final ImmutableMap<String, String> TEMPLATES = ImmutableMap.<String, String> builder()
+      .put("one", "1").put("two", "2").put("three", "3")
+      .put("plain", "no placeholders here")
+      .put("reference", "${one}")
+      .put("chain", "<${reference}>")
+      .put("concat", "${one}${two} ${three}")
+      .put("missing", "a ${four} b")
+      .put("default", "${four:4}")
+      .put("colon-default", "${four:a:b}")
+      .put("unused-default", "${one:?}")
+      .put("dollars", "$$${one}$ $")
+      .put("open", "${ ${one}")
+      .put("nested", "${a${one}}")
+      .put("empty", "${}")
+      .put("unterminated", "${one")
+      .put("backslash", "\\${one}\\")
+      .put("replacement-chars", "${money}")
+      .put("money", "$1 \\2")
+      .put("arguments-ignored", "${one(x,y)}")
+      .put("echo", "${$echo(one,'lit eral',four:?,three)}")
+      .put("echo-missing", "pre ${$echo(four)} post")
+      .put("echo-commas", "${$echo(one,two,,)}")
+      .put("echo-chain", "${$echo(chain,concat)}")
+      .put("read", "${$read('fox.txt')}")
+      .put("whitespace", "${ one}|${one }")
+      .build();
+
+  @Test
+  public void testCompiledMatchesRegex() {
+    Assert.assertEquals(new PropertiesResolver(TEMPLATES, false).getResolved(),
+        new PropertiesResolver(TEMPLATES, true).getResolved());
+  }
+
+  @Test
+  public void testCompiledValues() {
+    final Map<String, String> resolved = new PropertiesResolver(TEMPLATES).getResolved();
+    Assert.assertEquals("<1>", resolved.get("chain"));
+    Assert.assertEquals("a ${four} b", resolved.get("missing"));
+    Assert.assertEquals("a:b", resolved.get("colon-default"));
+    Assert.assertEquals("$$1$ $", resolved.get("dollars"));
+    Assert.assertEquals("${a1}", resolved.get("nested"));
+    Assert.assertEquals("${}", resolved.get("empty"));
+    Assert.assertEquals("$1 \\2", resolved.get("replacement-chars"));
+    Assert.assertEquals("1 lit eral ? 3", resolved.get("echo"));
+    Assert.assertEquals("pre ${four} post", resolved.get("echo-missing"));
+    Assert.assertEquals("<1> 12 3", resolved.get("echo-chain"));
+  }
+
+  @Test
+  public void testResolveOnlyDependencies() {
+    final PropertiesResolver resolver = new PropertiesResolver(TEMPLATES);
+    Assert.assertEquals("<1>", resolver.resolve("chain"));
+    Assert.assertEquals(3, resolver.getEvaluatedCount());
+    Assert.assertEquals("<1> 12 3", resolver.resolve("echo-chain"));
+    Assert.assertEquals(7, resolver.getEvaluatedCount());
+    Assert.assertNull(resolver.resolve("four"));
+    Assert.assertEquals(7, resolver.getEvaluatedCount());
+  }
+
+  @Test
+  public void testResolveAll() {
+    final PropertiesResolver resolver = new PropertiesResolver(TEMPLATES);
+    Assert.assertEquals(ImmutableMap.of("reference", "1", "default", "4"),
+        resolver.resolveAll(ImmutableList.of("reference", "four", "default", "reference")));
+    Assert.assertEquals(3, resolver.getEvaluatedCount());
+    Assert.assertEquals(new PropertiesResolver(TEMPLATES).getResolved(), resolver.getResolved());
+    Assert.assertEquals(TEMPLATES.size(), resolver.getEvaluatedCount());
+  }
+
+  @Test
+  public void testTemplateReferences() {
+    Assert.assertEquals(ImmutableSet.of("one", "four", "three"),
+        PropertyTemplate.compile(TEMPLATES.get("echo")).getReferences());
+    Assert.assertTrue(PropertyTemplate.compile(TEMPLATES.get("unterminated")).isConstant());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedCompiled() {
+    new PropertiesResolver(ImmutableMap.of("bad", "${a$b}"), true).getResolved();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedRegex() {
+    new PropertiesResolver(ImmutableMap.of("bad", "${a$b}"), false).getResolved();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCircularCompiled() {
+    new PropertiesResolver(ImmutableMap.of("a", "${b}", "b", "${a}"), true).getResolved();
+  }
+
+  @Test
+  public void testFunctionResolvers() {
+    final Map<String, String> resolved = new PropertiesResolver(ImmutableMap.<String, String> builder()
+        .put("one", "1").put("two", "2")
+        .put("class", "${$ca.cutterslade.utilities.ReverseFunction(one,two,'3')}")
+        .put("method", "${$java.lang.String.valueOf(one)}")
+        .put("method-arity", "${$java.lang.System.getProperty('no.such.property',two)}")
+        .put("method-varargs", "${$java.util.Arrays.asList(one,two)}")
+        .put("method-array", "${$java.util.Arrays.toString(one,two)}")
+        .put("method-array-single", "${$java.util.Arrays.toString(one)}")
+        .put("field", "${$ca.cutterslade.utilities.BuiltinFunctions.ECHO(one,two)}")
+        .put("enum", "${$ca.cutterslade.utilities.BuiltinFunctions.echo(two,one)}")
+        .put("null-result", "${$java.lang.System.getProperty('no.such.property'):none}")
+        .build()).getResolved();
+    Assert.assertEquals("321", resolved.get("class"));
+    Assert.assertEquals("1", resolved.get("method"));
+    Assert.assertEquals("2", resolved.get("method-arity"));
+    Assert.assertEquals("[1, 2]", resolved.get("method-varargs"));
+    Assert.assertEquals("[1, 2]", resolved.get("method-array"));
+    Assert.assertEquals("[1]", resolved.get("method-array-single"));
+    Assert.assertEquals("1 2", resolved.get("field"));
+    Assert.assertEquals("2 1", resolved.get("enum"));
+    Assert.assertEquals("none", resolved.get("null-result"));
+  }
+
+  @Test
+  public void testComputeMethodsRegistered() {
+    Assert.assertSame(PropertiesResolver.getComputeMethod("java.lang.String.valueOf", 1),
+        PropertiesResolver.getComputeMethod("java.lang.String.valueOf", 1));
+    Assert.assertSame(BuiltinFunctions.ECHO, PropertiesResolver.getComputeMethod("echo", 3).getFunction());
+    Assert.assertNotSame(PropertiesResolver.getComputeMethod("java.lang.System.getProperty", 1),
+        PropertiesResolver.getComputeMethod("java.lang.System.getProperty", 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownFunction() {
+    new PropertiesResolver(ImmutableMap.of("bad", "${$java.lang.String.noSuchMethod(x)}")).getResolved();
+  }
+
+  /**
+   * A class loader counting the requests to load classes of the {@code no.such} package.
+   */
+  private static final class CountingClassLoader extends ClassLoader {
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    CountingClassLoader() {
+      super(PropertiesResolverTest.class.getClassLoader());
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+      if (name.startsWith("no.such.")) {
+        requests.incrementAndGet();
+      }
+      return super.loadClass(name, resolve);
+    }
+  }
+
+  private static void assertUnresolvable(final String methodName) {
+    try {
+      PropertiesResolver.getComputeMethod(methodName, 1);
+      Assert.fail();
+    }
+    catch (final IllegalArgumentException e) {
+      Assert.assertEquals("Could not resolve method indicated by '" + methodName + "'", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testUnknownFunctionRegisteredPerClassLoader() {
+    final Thread thread = Thread.currentThread();
+    final ClassLoader original = thread.getContextClassLoader();
+    final CountingClassLoader first = new CountingClassLoader();
+    final CountingClassLoader second = new CountingClassLoader();
+    try {
+      thread.setContextClassLoader(first);
+      assertUnresolvable("no.such.Type.method");
+      final int requests = first.requests.get();
+      Assert.assertTrue(requests > 0);
+      assertUnresolvable("no.such.Type.method");
+      Assert.assertEquals(requests, first.requests.get());
+      thread.setContextClassLoader(second);
+      assertUnresolvable("no.such.Type.method");
+      Assert.assertTrue(second.requests.get() > 0);
+    }
+    finally {
+      thread.setContextClassLoader(original);
+    }
+  }
+
+  @Test
+  public void testPureFunctions() {
+    Assert.assertTrue(PropertiesResolver.getComputeMethod("echo", 1).isPure());
+    Assert.assertFalse(PropertiesResolver.getComputeMethod("read", 1).isPure());
+    Assert.assertTrue(PropertiesResolver.getComputeMethod("ca.cutterslade.utilities.ReverseFunction", 1).isPure());
+    Assert.assertTrue(PropertiesResolver.getComputeMethod("ca.cutterslade.utilities.BuiltinFunctions.ECHO", 1)
+        .isPure());
+    Assert.assertFalse(PropertiesResolver.getComputeMethod("java.lang.String.valueOf", 1).isPure());
+  }
+
+  @Test
+  public void testMemoizedComputations() {
+    final ImmutableMap<String, String> properties = ImmutableMap.<String, String> builder()
+        .put("one", "1").put("two", "2")
+        .put("a", "${$echo(one,two)}").put("b", "<${$echo(one,two)}>").put("c", "${$echo(two,one)}")
+        .put("d", "${$read('fox.txt')}").put("e", "${$read('fox.txt')}")
+        .build();
+    final ComputationCache computations = new ComputationCache(100);
+    Assert.assertEquals(new PropertiesResolver(properties).getResolved(),
+        new PropertiesResolver(properties, computations).getResolved());
+    Assert.assertEquals(new CacheStats(1, 2, 0, 0, 0, 0), computations.getStats().get("echo"));
+    Assert.assertEquals(new CacheStats(0, 2, 0, 0, 0, 0), computations.getStats().get("read"));
+    Assert.assertEquals(2, computations.size());
+    new PropertiesResolver(properties, computations).getResolved();
+    Assert.assertEquals(4, computations.getStats().get("echo").hitCount());
+  }
+
+  @Test(timeout = 60000)
+  public void testDeepChain() throws Throwable {
+    final int length = 100000;
+    final ImmutableMap<String, String> chain = GeneratedProperties.chain(length);
+    final String top = GeneratedProperties.key(length - 1);
+    onSmallStack(new Runnable() {
+
+      @Override
+      public void run() {
+        final PropertiesResolver resolver = new PropertiesResolver(chain);
+        Assert.assertEquals("end", resolver.resolve(top));
+        Assert.assertEquals(length, resolver.getEvaluatedCount());
+        Assert.assertEquals("end", new ConcurrentPropertiesResolver(chain).resolve(top));
+        final PropertiesSnapshot snapshot = PropertiesSnapshot.of(chain);
+        Assert.assertEquals("end", snapshot.getResolved().get(top));
+        Assert.assertEquals("changed", snapshot.update(ImmutableMap.of(GeneratedProperties.key(0), "changed"))
+            .getSnapshot().getResolved().get(top));
+      }
+    });
+  }
+
+  @Test
+  public void testCyclePath() {
+    try {
+      new PropertiesResolver(ImmutableMap.of("a", "${b}", "b", "${$echo(c)}", "c", "${b}")).resolve("a");
+      Assert.fail("Expected circular reference");
+    }
+    catch (final IllegalStateException e) {
+      Assert.assertEquals("Circular reference found on key b: b -> c -> b", e.getMessage());
+    }
+  }
+
+  /**
+   * Runs the given task on a thread whose stack is far too small to recurse once per link of a long chain.
+   */
+  private static void onSmallStack(final Runnable task) throws Throwable {
+    final Throwable[] failure = new Throwable[1];
+    final Thread thread = new Thread(null, new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          task.run();
+        }
+        catch (final Throwable e) {
+          failure[0] = e;
+        }
+      }
+    }, "small-stack", 256 * 1024);
+    thread.start();
+    thread.join();
+    if (null != failure[0]) {
+      throw failure[0];
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package ca.cutterslade.utilities;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class PropertiesSnapshotTest {
+
+  @Test
+  public void testUpdateThroughFunctionArguments() {
+    final PropertiesSnapshot snapshot = PropertiesSnapshot.of(ImmutableMap.of("file", "fox.txt", "name", "x",
+        "echo", "${$echo(name,'!')}", "other", "${file}", "unrelated", "u"));
+    Assert.assertEquals(ImmutableSet.of("echo"), snapshot.getDependents("name"));
+    final PropertiesSnapshot.Update update = snapshot.update(ImmutableMap.of("name", "y"));
+    Assert.assertEquals(ImmutableSet.of("name", "echo"), update.getChangedKeys());
+    Assert.assertEquals("y !", update.getSnapshot().getResolved().get("echo"));
+    Assert.assertEquals("x !", snapshot.getResolved().get("echo"));
+  }
+
+  @Test
+  public void testUndefinedReferenceAddedAndRemoved() {
+    final PropertiesSnapshot snapshot = PropertiesSnapshot.of(ImmutableMap.of("a", "${b:none}"));
+    final Map<String, String> added = Maps.newHashMap();
+    added.put("b", "B");
+    final PropertiesSnapshot.Update addition = snapshot.update(added);
+    Assert.assertEquals(ImmutableMap.of("a", "B", "b", "B"), addition.getSnapshot().getResolved());
+    final Map<String, String> removed = Maps.newHashMap();
+    removed.put("b", null);
+    final PropertiesSnapshot.Update removal = addition.getSnapshot().update(removed);
+    Assert.assertEquals(ImmutableSet.of("a", "b"), removal.getChangedKeys());
+    Assert.assertEquals(snapshot.getResolved(), removal.getSnapshot().getResolved());
+  }
+
+  @Test
+  public void testUnchangedValue() {
+    final PropertiesSnapshot snapshot = PropertiesSnapshot.of(ImmutableMap.of("a", "${z:1}", "b", "${a}"));
+    Assert.assertSame(snapshot, snapshot.update(ImmutableMap.of("a", "${z:1}")).getSnapshot());
+    final PropertiesSnapshot.Update update = snapshot.update(ImmutableMap.of("a", "1"));
+    Assert.assertEquals(ImmutableSet.of(), update.getChangedKeys());
+    Assert.assertEquals(snapshot.getResolved(), update.getSnapshot().getResolved());
+  }
+
+  @Test
+  public void testRandomUpdatesMatchFullResolution() {
+    final int size = 3000;
+    final Random random = new Random(3);
+    PropertiesSnapshot snapshot = PropertiesSnapshot.of(GeneratedProperties.generate(size, 3, 5));
+    for (int round = 0; round < 50; round++) {
+      final Map<String, String> changed = Maps.newHashMap();
+      for (int i = random.nextInt(5); i >= 0; i--) {
+        final int index = random.nextInt(size + 10);
+        changed.put(GeneratedProperties.key(index),
+            0 == random.nextInt(4) ? null : "r" + round + " ${" + GeneratedProperties.key(random.nextInt(index + 1))
+                + ":d}");
+      }
+      final PropertiesSnapshot.Update update = snapshot.update(changed);
+      final ImmutableMap<String, String> expected =
+          PropertiesUtils.resolveProperties(update.getSnapshot().getSource());
+      Assert.assertEquals(expected, update.getSnapshot().getResolved());
+      for (final String key : Sets.union(expected.keySet(), snapshot.getResolved().keySet())) {
+        Assert.assertEquals(key, !Objects.equal(expected.get(key), snapshot.getResolved().get(key)),
+            update.getChangedKeys().contains(key));
+      }
+      snapshot = update.getSnapshot();
+    }
+  }
+
+  @Test
+  public void testDeriveTenants() {
+    final ImmutableMap<String, String> base = GeneratedProperties.generate(5000, 3, 13);
+    final PropertiesSnapshot snapshot = PropertiesSnapshot.of(base);
+    final Random random = new Random(17);
+    for (int tenant = 0; tenant < 20; tenant++) {
+      final Map<String, String> overlay = Maps.newHashMap();
+      overlay.put(GeneratedProperties.key(random.nextInt(base.size())), "tenant" + tenant);
+      overlay.put("missing." + random.nextInt(base.size()), "m" + tenant);
+      overlay.put("tenant.only", "${" + GeneratedProperties.key(random.nextInt(base.size())) + "}");
+      final LayeredProperties derived = snapshot.derive(overlay);
+      Assert.assertEquals(PropertiesUtils.resolveProperties(ImmutableList.of(overlay, base)), derived);
+      Assert.assertEquals(2, derived.getLayers().size());
+      Assert.assertSame(snapshot.getResolved(), derived.getLayers().get(1));
+      Assert.assertTrue(derived.getLayers().get(0).size() < base.size() / 2);
+    }
+  }
+
+  @Test
+  public void testDeriveUnchanged() {
+    final PropertiesSnapshot snapshot = PropertiesSnapshot.of(ImmutableMap.of("a", "1", "b", "${a}"));
+    final LayeredProperties derived = snapshot.derive(ImmutableMap.of("a", "1"));
+    Assert.assertEquals(ImmutableList.of(snapshot.getResolved()), derived.getLayers());
+  }
+
+  /**
+   * Compares the memory allocated by one key updates of a small and a large snapshot, and by a small and a large update
+   * of the same snapshot. Allocation rather than time is measured, as it does not depend on the load of the machine;
+   * copying the whole snapshot would allocate several megabytes for the large one.
+   */
+  @Test
+  public void testUpdateCostFollowsDelta() {
+    final PropertiesSnapshot small = PropertiesSnapshot.of(GeneratedProperties.generate(1000, 3, 23));
+    final PropertiesSnapshot large = PropertiesSnapshot.of(GeneratedProperties.generate(100000, 3, 23));
+    final long smallUpdate = updateAllocation(small, 1);
+    final long largeUpdate = updateAllocation(large, 1);
+    Assert.assertTrue("Updating one key of 1000 allocated " + smallUpdate + " bytes, of 100000 " + largeUpdate,
+        largeUpdate < smallUpdate * 4 + 64 * 1024);
+    final long largeDelta = updateAllocation(large, 1000);
+    Assert.assertTrue("Updating 1000 keys allocated " + largeDelta + " bytes, one key " + largeUpdate,
+        largeDelta > largeUpdate * 10);
+  }
+
+  /**
+   * The least memory allocated by updating the last {@code keys} keys of the snapshot, which no other keys reference.
+   */
+  private static long updateAllocation(final PropertiesSnapshot snapshot, final int keys) {
+    final Map<String, String> changed = Maps.newHashMap();
+    final int size = snapshot.getSource().size();
+    for (int i = size - keys; i < size; i++) {
+      changed.put(GeneratedProperties.key(i), "changed" + i);
+    }
+    long least = Long.MAX_VALUE;
+    for (int round = 0; round < 10; round++) {
+      final long before = allocatedBytes();
+      final PropertiesSnapshot.Update update = snapshot.update(changed);
+      least = Math.min(least, allocatedBytes() - before);
+      Assert.assertEquals("changed" + (size - 1),
+          update.getSnapshot().getResolved().get(GeneratedProperties.key(size - 1)));
+    }
+    return least;
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread
+        .currentThread().getId());
+  }
+}
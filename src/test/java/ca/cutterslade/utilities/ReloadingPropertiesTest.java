@@ -0,0 +1,159 @@
+package ca.cutterslade.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+public class ReloadingPropertiesTest {
+
+  private static final long TIMEOUT_SECONDS = 30;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testReloadChangedKeys() throws Exception {
+    final File high = write("high.properties", "x=1\ny=${x}-${z}\n");
+    final File low = write("low.properties", "z=3\nw=4\n");
+    final ReloadingProperties properties =
+        ReloadingProperties.open(ImmutableList.of(high, low), 100, TimeUnit.MILLISECONDS);
+    try {
+      final BlockingQueue<ImmutableSet<String>> changes = listen(properties);
+      Assert.assertEquals(ImmutableMap.of("x", "1", "y", "1-3", "z", "3", "w", "4"), properties.getResolved());
+      Files.write("x=2\ny=${x}-${z}\n", high, Charsets.ISO_8859_1);
+      Assert.assertEquals(ImmutableSet.of("x", "y"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals("2-3", properties.getResolved().get("y"));
+      Files.write("x=0\nz=5\n", low, Charsets.ISO_8859_1);
+      Assert.assertEquals(ImmutableSet.of("y", "z", "w"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals(ImmutableMap.of("x", "2", "y", "2-5", "z", "5"), properties.getResolved());
+    }
+    finally {
+      properties.close();
+    }
+  }
+
+  @Test
+  public void testDeletedFile() throws Exception {
+    final File high = write("high.properties", "x=override\n");
+    final File low = write("low.properties", "x=base\n");
+    final ReloadingProperties properties =
+        ReloadingProperties.open(ImmutableList.of(high, low), 100, TimeUnit.MILLISECONDS);
+    try {
+      final BlockingQueue<ImmutableSet<String>> changes = listen(properties);
+      Assert.assertTrue(high.delete());
+      Assert.assertEquals(ImmutableSet.of("x"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals(ImmutableMap.of("x", "base"), properties.getResolved());
+      write("high.properties", "x=restored\n");
+      Assert.assertEquals(ImmutableSet.of("x"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals(ImmutableMap.of("x", "restored"), properties.getResolved());
+    }
+    finally {
+      properties.close();
+    }
+  }
+
+  @Test
+  public void testRefusedChangeNotPublished() throws Exception {
+    final File high = write("high.properties", "a=1\n");
+    final File low = write("low.properties", "b=2\nc=old\n");
+    final ReloadingProperties properties =
+        ReloadingProperties.open(ImmutableList.of(high, low), 100, TimeUnit.MILLISECONDS);
+    try {
+      final BlockingQueue<ImmutableSet<String>> changes = listen(properties);
+      Files.write("a=${b}\nb=${a}\nc=refused\n", high, Charsets.ISO_8859_1);
+      Assert.assertNull(changes.poll(1, TimeUnit.SECONDS));
+      Assert.assertEquals(ImmutableMap.of("a", "1", "b", "2", "c", "old"), properties.getResolved());
+      Files.write("b=2\nc=new\n", low, Charsets.ISO_8859_1);
+      Assert.assertEquals(ImmutableSet.of("c"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals(ImmutableMap.of("a", "1", "b", "2", "c", "new"), properties.getResolved());
+    }
+    finally {
+      properties.close();
+    }
+  }
+
+  @Test
+  public void testDirectoryRecreated() throws Exception {
+    final File directory = folder.newFolder("conf");
+    final File high = write("conf/high.properties", "x=override\n");
+    final File low = write("low.properties", "x=base\n");
+    final ReloadingProperties properties =
+        ReloadingProperties.open(ImmutableList.of(high, low), 100, TimeUnit.MILLISECONDS);
+    try {
+      final BlockingQueue<ImmutableSet<String>> changes = listen(properties);
+      Assert.assertTrue(high.delete());
+      Assert.assertTrue(directory.delete());
+      Assert.assertEquals(ImmutableSet.of("x"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals(ImmutableMap.of("x", "base"), properties.getResolved());
+      Assert.assertTrue(directory.mkdir());
+      write("conf/high.properties", "x=restored\n");
+      Assert.assertEquals(ImmutableSet.of("x"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals(ImmutableMap.of("x", "restored"), properties.getResolved());
+    }
+    finally {
+      properties.close();
+    }
+  }
+
+  @Test
+  public void testCloseStopsWatcher() throws Exception {
+    final File file = write("closed.properties", "x=1\n");
+    final ReloadingProperties properties = ReloadingProperties.open(ImmutableList.of(file));
+    properties.close();
+    for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+      Assert.assertFalse(thread.getName(), thread.getName().startsWith("ReloadingProperties ") && thread.isAlive());
+    }
+    Assert.assertEquals(ImmutableMap.of("x", "1"), properties.getResolved());
+  }
+
+  @Test
+  public void testBurstDebounced() throws Exception {
+    final File file = write("burst.properties", "count=0\n");
+    final ReloadingProperties properties =
+        ReloadingProperties.open(ImmutableList.of(file), 500, TimeUnit.MILLISECONDS);
+    try {
+      final BlockingQueue<ImmutableSet<String>> changes = listen(properties);
+      for (int i = 1; i <= 10; i++) {
+        Files.write("count=" + i + '\n', file, Charsets.ISO_8859_1);
+      }
+      Assert.assertEquals(ImmutableSet.of("count"), changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assert.assertEquals("10", properties.getResolved().get("count"));
+      Assert.assertNull(changes.poll(1, TimeUnit.SECONDS));
+    }
+    finally {
+      properties.close();
+    }
+  }
+
+  private File write(final String name, final String content) throws IOException {
+    final File file = new File(folder.getRoot(), name);
+    Files.write(content, file, Charsets.ISO_8859_1);
+    return file;
+  }
+
+  private static BlockingQueue<ImmutableSet<String>> listen(final ReloadingProperties properties) {
+    final BlockingQueue<ImmutableSet<String>> changes = new LinkedBlockingQueue<ImmutableSet<String>>();
+    properties.addListener(new ReloadingProperties.Listener() {
+
+      @Override
+      public void propertiesChanged(final ReloadingProperties reloaded, final ImmutableSet<String> changedKeys) {
+        changes.add(changedKeys);
+      }
+    });
+    return changes;
+  }
+}
@@ -0,0 +1,118 @@
+package ca.cutterslade.utilities;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+
+public class ResolutionMetricsTest {
+
+  private static final ImmutableMap<String, String> PROPERTIES = ImmutableMap.<String, String> builder()
+      .put("a", "x")
+      .put("b", "${a}-${$echo(a)}")
+      .put("c", "${b} ${missing} ${other:d} ${$echo(nope,'lit')}")
+      .put("d", "${c}${c}")
+      .build();
+
+  @Test
+  public void testResolution() {
+    final ResolutionMetrics metrics = new ResolutionMetrics();
+    final ImmutableMap<String, String> resolved = PropertiesUtils.resolveProperties(PROPERTIES, metrics);
+    Assert.assertEquals(PropertiesUtils.resolveProperties(PROPERTIES), resolved);
+    Assert.assertEquals(1, metrics.getResolutionCount());
+    Assert.assertEquals(4, metrics.getResolvedKeyCount());
+    Assert.assertEquals(2, metrics.getUnresolvedPlaceholderCount());
+    Assert.assertTrue(metrics.getResolutionNanos() > 0);
+    Assert.assertEquals(2, metrics.getFunctions().get("echo").getCalls());
+    final Map<String, Integer> depths = ImmutableMap.of("a", 0, "b", 1, "c", 2, "d", 3);
+    final List<ResolutionMetrics.KeyTiming> slowest = metrics.getSlowestKeys();
+    Assert.assertEquals(4, slowest.size());
+    for (int i = 0; i < slowest.size(); i++) {
+      final ResolutionMetrics.KeyTiming timing = slowest.get(i);
+      Assert.assertEquals(timing.getKey(), depths.get(timing.getKey()).intValue(), timing.getDepth());
+      if (i > 0) {
+        Assert.assertTrue(slowest.get(i - 1).getNanos() >= timing.getNanos());
+      }
+    }
+  }
+
+  @Test
+  public void testRepeatedResolutionNotCounted() {
+    final ResolutionMetrics metrics = new ResolutionMetrics();
+    final PropertiesResolver resolver = new PropertiesResolver(PROPERTIES, metrics);
+    Assert.assertEquals("x", resolver.resolve("a"));
+    resolver.getResolved();
+    Assert.assertEquals(1, metrics.getResolutionCount());
+    Assert.assertEquals(4, metrics.getResolvedKeyCount());
+    Assert.assertEquals(2, metrics.getUnresolvedPlaceholderCount());
+    resolver.getResolved();
+    Assert.assertEquals(1, metrics.getResolutionCount());
+    Assert.assertEquals(2, metrics.getUnresolvedPlaceholderCount());
+  }
+
+  @Test
+  public void testSlowestKeysBounded() {
+    final ResolutionMetrics metrics = new ResolutionMetrics(2);
+    new PropertiesResolver(GeneratedProperties.generate(200, 3, 1), metrics).getResolved();
+    Assert.assertEquals(200, metrics.getResolvedKeyCount());
+    Assert.assertEquals(2, metrics.getSlowestKeys().size());
+    Assert.assertEquals(2, metrics.getSlowestKeySummaries().length);
+  }
+
+  @Test
+  public void testLoad() throws IOException {
+    final ResolutionMetrics metrics = new ResolutionMetrics();
+    final Map<String, String> loaded =
+        PropertiesUtils.loadProperties(Resources.getResource("simple.properties"), metrics);
+    Assert.assertEquals(1, metrics.getLoadCount());
+    Assert.assertEquals(loaded.size(), metrics.getLoadedPropertyCount());
+    Assert.assertTrue(metrics.getLoadNanos() > 0);
+  }
+
+  @Test
+  public void testNoListener() {
+    final PropertiesResolver resolver = new PropertiesResolver(PROPERTIES, ResolutionListener.NONE);
+    Assert.assertEquals(PropertiesUtils.resolveProperties(PROPERTIES), resolver.getResolved());
+  }
+
+  @Test
+  public void testReset() {
+    final ResolutionMetrics metrics = new ResolutionMetrics();
+    PropertiesUtils.resolveProperties(PROPERTIES, metrics);
+    metrics.reset();
+    Assert.assertEquals(0, metrics.getResolvedKeyCount());
+    Assert.assertTrue(metrics.getFunctions().isEmpty());
+    Assert.assertTrue(metrics.getSlowestKeys().isEmpty());
+  }
+
+  @Test
+  public void testMBean() throws JMException {
+    final ResolutionMetrics metrics = new ResolutionMetrics();
+    final ObjectName name = metrics.registerMBean("test");
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      PropertiesUtils.resolveProperties(PROPERTIES, metrics);
+      Assert.assertEquals(2L, server.getAttribute(name, "UnresolvedPlaceholderCount"));
+      final List<String> functions = Lists.newArrayList((String[]) server.getAttribute(name, "FunctionSummaries"));
+      Assert.assertEquals(1, functions.size());
+      Assert.assertTrue(functions.get(0), functions.get(0).startsWith("echo: 2 calls, "));
+      server.invoke(name, "reset", new Object[0], new String[0]);
+      Assert.assertEquals(0L, server.getAttribute(name, "ResolutionCount"));
+    }
+    finally {
+      server.unregisterMBean(name);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package ca.cutterslade.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.Assert;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+
+public class ResourceCacheTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    final ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAXIMUM_CHARACTERS);
+    final URL fox = Resources.getResource("fox.txt");
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("The quick brown fox jumps over the lazy dog.", cache.read(fox));
+    }
+    Assert.assertEquals(1, cache.getMissCount());
+    Assert.assertEquals(2, cache.getHitCount());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testChangedFileReloaded() throws IOException {
+    final ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAXIMUM_CHARACTERS);
+    final File file = folder.newFile("changing.txt");
+    Files.write("before", file, Charsets.UTF_8);
+    final URL url = file.toURI().toURL();
+    Assert.assertEquals("before", cache.read(url));
+    Files.write("after, and longer", file, Charsets.UTF_8);
+    Assert.assertEquals("after, and longer", cache.read(url));
+    Assert.assertEquals(1, cache.getInvalidationCount());
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(0, cache.getHitCount());
+  }
+
+  @Test
+  public void testLargeFileMapped() throws IOException {
+    final ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAXIMUM_CHARACTERS);
+    final String content = Strings.repeat("été ", 50000);
+    final File file = folder.newFile("large.txt");
+    Files.write(content, file, Charsets.UTF_8);
+    Assert.assertEquals(content, cache.read(file.toURI().toURL()));
+    Assert.assertEquals(content, cache.read(file.toURI().toURL()));
+    Assert.assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    final ResourceCache cache = new ResourceCache(100);
+    for (int i = 0; i < 10; i++) {
+      final File file = folder.newFile("file" + i + ".txt");
+      Files.write(Strings.repeat("x", 40), file, Charsets.UTF_8);
+      cache.read(file.toURI().toURL());
+    }
+    Assert.assertTrue(cache.getEvictionCount() >= 7);
+    Assert.assertTrue(cache.size() <= 3);
+  }
+
+  @Test
+  public void testReadFunctionUsesSharedCache() {
+    final long hits = ResourceCache.shared().getHitCount();
+    final long misses = ResourceCache.shared().getMissCount();
+    PropertiesUtils.resolveProperties(ImmutableMap.of("a", "${$read('fox.txt')}", "b", "${$read('fox.txt')}"));
+    Assert.assertTrue(ResourceCache.shared().getHitCount() > hits);
+    Assert.assertEquals(2, ResourceCache.shared().getHitCount() - hits + ResourceCache.shared().getMissCount()
+        - misses);
+  }
+
+  /**
+   * A resource served through its own URL handler, counting the connections opened to it.
+   */
+  private static final class RemoteResource extends URLStreamHandler {
+
+    private volatile String content = "first";
+
+    private volatile long lastModified = 1000;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @Override
+    protected URLConnection openConnection(final URL url) {
+      connections.incrementAndGet();
+      final byte[] bytes = content.getBytes(Charsets.UTF_8);
+      final long modified = lastModified;
+      return new URLConnection(url) {
+
+        @Override
+        public void connect() {
+          connected = true;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+          return new ByteArrayInputStream(bytes) {
+
+            @Override
+            public void close() {
+              closed.incrementAndGet();
+            }
+          };
+        }
+
+        @Override
+        public long getLastModified() {
+          return modified;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+          return bytes.length;
+        }
+      };
+    }
+  }
+
+  private static final class ManualTicker extends Ticker {
+
+    private volatile long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+
+  @Test
+  public void testRemoteResourceRevalidatedPerInterval() throws IOException {
+    final ManualTicker ticker = new ManualTicker();
+    final ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAXIMUM_CHARACTERS, 10, TimeUnit.SECONDS,
+        ticker);
+    final RemoteResource remote = new RemoteResource();
+    final URL resource = new URL(null, "remote:resource", remote);
+    Assert.assertEquals("first", cache.read(resource));
+    Assert.assertEquals(1, remote.connections.get());
+    Assert.assertEquals("first", cache.read(resource));
+    Assert.assertEquals(1, remote.connections.get());
+
+    remote.content = "second";
+    remote.lastModified = 2000;
+    ticker.nanos = TimeUnit.SECONDS.toNanos(9);
+    Assert.assertEquals("first", cache.read(resource));
+    ticker.nanos = TimeUnit.SECONDS.toNanos(10);
+    Assert.assertEquals("second", cache.read(resource));
+    Assert.assertEquals(2, remote.connections.get());
+    Assert.assertEquals(2, remote.closed.get());
+    Assert.assertEquals(1, cache.getInvalidationCount());
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(2, cache.getHitCount());
+  }
+
+  @Test
+  public void testJarResourceNotRevalidated() throws IOException {
+    final ManualTicker ticker = new ManualTicker();
+    final ResourceCache cache = new ResourceCache(ResourceCache.DEFAULT_MAXIMUM_CHARACTERS, 0, TimeUnit.SECONDS,
+        ticker);
+    final File jar = folder.newFile("resources.jar");
+    final JarOutputStream output = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      output.putNextEntry(new JarEntry("inside.txt"));
+      output.write("inside".getBytes(Charsets.UTF_8));
+    }
+    finally {
+      output.close();
+    }
+    final URL resource = new URL("jar:" + jar.toURI().toURL() + "!/inside.txt");
+    Assert.assertEquals("inside", cache.read(resource));
+    Assert.assertTrue(jar.delete());
+    ticker.nanos = TimeUnit.DAYS.toNanos(1);
+    Assert.assertEquals("inside", cache.read(resource));
+    Assert.assertEquals(1, cache.getHitCount());
+  }
+}
@@ -0,0 +1,127 @@
+package ca.cutterslade.utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class ResultSetExporterTest {
+
+  private static final ImmutableList<String> LABELS = ImmutableList.of("id", "total", "score", "price", "flag", "name");
+
+  private static ResultSet result() {
+    return FakeResultSet.of(LABELS, ImmutableList.of(
+        new Object[] { 1, 10L, 1.5, new BigDecimal("12.30"), true, "plain" },
+        new Object[] { -42, Long.MIN_VALUE, -0.25, null, false, "comma, \"quote\"\nline" },
+        new Object[] { null, null, null, new BigDecimal("-1"), null, null },
+        new Object[] { Integer.MIN_VALUE, Long.MAX_VALUE, Double.NaN, BigDecimal.ZERO, true, "" },
+        new Object[] { 0, 0L, 1e300, BigDecimal.ONE, false, "caf\u00e9 \ud83d\ude00 \u0001\t\\ \ud800" }));
+  }
+
+  private static String export(final ResultSetExporter exporter, final ResultSet result, final long expectedRows)
+      throws SQLException, IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Assert.assertEquals(expectedRows, exporter.export(result, Channels.newChannel(bytes)));
+    return new String(bytes.toByteArray(), Charsets.UTF_8);
+  }
+
+  @Test
+  public void testCsv() throws SQLException, IOException {
+    Assert.assertEquals("id,total,score,price,flag,name\r\n"
+        + "1,10,1.5,12.30,true,plain\r\n"
+        + "-42,-9223372036854775808,-0.25,,false,\"comma, \"\"quote\"\"\nline\"\r\n"
+        + ",,,-1,,\r\n"
+        + "-2147483648,9223372036854775807,NaN,0,true,\"\"\r\n"
+        + "0,0,1.0E300,1,false,caf\u00e9 \ud83d\ude00 \u0001\t\\ ?\r\n",
+        export(new ResultSetExporter(ResultSetExporter.Format.CSV), result(), 5));
+  }
+
+  @Test
+  public void testJsonLines() throws SQLException, IOException {
+    Assert.assertEquals(
+        "{\"id\":1,\"total\":10,\"score\":1.5,\"price\":12.30,\"flag\":true,\"name\":\"plain\"}\n"
+            + "{\"id\":-42,\"total\":-9223372036854775808,\"score\":-0.25,\"price\":null,\"flag\":false,"
+            + "\"name\":\"comma, \\\"quote\\\"\\nline\"}\n"
+            + "{\"id\":null,\"total\":null,\"score\":null,\"price\":-1,\"flag\":null,\"name\":null}\n"
+            + "{\"id\":-2147483648,\"total\":9223372036854775807,\"score\":\"NaN\",\"price\":0,\"flag\":true,"
+            + "\"name\":\"\"}\n"
+            + "{\"id\":0,\"total\":0,\"score\":1.0E300,\"price\":1,\"flag\":false,"
+            + "\"name\":\"caf\u00e9 \ud83d\ude00 \\u0001\\t\\\\ ?\"}\n",
+        export(new ResultSetExporter(ResultSetExporter.Format.JSON_LINES), result(), 5));
+  }
+
+  @Test
+  public void testEscapedLabels() throws SQLException, IOException {
+    final ImmutableList<String> labels = ImmutableList.of("a,b", "say \"hi\"");
+    final List<Object[]> rows = ImmutableList.of(new Object[] { 1, 2 });
+    Assert.assertEquals("\"a,b\",\"say \"\"hi\"\"\"\r\n1,2\r\n",
+        export(new ResultSetExporter(ResultSetExporter.Format.CSV), FakeResultSet.of(labels, rows), 1));
+    Assert.assertEquals("{\"a,b\":1,\"say \\\"hi\\\"\":2}\n",
+        export(new ResultSetExporter(ResultSetExporter.Format.JSON_LINES), FakeResultSet.of(labels, rows), 1));
+  }
+
+  @Test
+  public void testSmallBuffer() throws SQLException, IOException {
+    final List<Object[]> rows = Lists.newArrayList();
+    for (int i = 0; i < 5000; i++) {
+      rows.add(new Object[] { i, (long) i * i, Strings.repeat("\u00e9\"x", i % 100) });
+    }
+    final ImmutableList<String> labels = ImmutableList.of("n", "square", Strings.repeat("label", 30));
+    for (final ResultSetExporter.Format format : ResultSetExporter.Format.values()) {
+      final ResultSetExporter small = new ResultSetExporter(format, 64);
+      final String expected = export(new ResultSetExporter(format), FakeResultSet.of(labels, rows), 5000);
+      Assert.assertEquals(expected, export(small, FakeResultSet.of(labels, rows), 5000));
+      Assert.assertEquals("The exporter can be reused", expected, export(small, FakeResultSet.of(labels, rows), 5000));
+    }
+  }
+
+  @Test
+  public void testReal() throws SQLException, IOException {
+    final ImmutableList<String> labels = ImmutableList.of("real");
+    final List<Object[]> rows = ImmutableList.of(new Object[] { 0.1f }, new Object[] { null },
+        new Object[] { Float.NaN });
+    Assert.assertEquals("real\r\n0.1\r\n\r\nNaN\r\n",
+        export(new ResultSetExporter(ResultSetExporter.Format.CSV), FakeResultSet.of(labels, rows), 3));
+    Assert.assertEquals("{\"real\":0.1}\n{\"real\":null}\n{\"real\":\"NaN\"}\n",
+        export(new ResultSetExporter(ResultSetExporter.Format.JSON_LINES), FakeResultSet.of(labels, rows), 3));
+  }
+
+  @Test
+  public void testNumbersWrittenAsToString() throws SQLException, IOException {
+    assertWrittenAsToString(new BigDecimal("0.000001"), new BigDecimal("0.0000001"), new BigDecimal("-0.00012300"),
+        new BigDecimal("1E+3"), new BigDecimal("-1.5E+10"), new BigDecimal("12E-10"),
+        new BigDecimal("123456789012345678"), new BigDecimal("-4611686018427387904"),
+        new BigDecimal("-9223372036854775808.5"), new BigDecimal("123456789012345678901234567890.123"),
+        BigDecimal.valueOf(Long.MIN_VALUE, 3));
+    assertWrittenAsToString(0.0, -0.0, 3.0, -9999999.0, 1e7, 1e-7, 0.1, 123.0625);
+    assertWrittenAsToString(0.0f, -0.0f, 3.0f, 9999999.0f, 1e7f, 0.1f);
+  }
+
+  private static void assertWrittenAsToString(final Object... values) throws SQLException, IOException {
+    final StringBuilder expected = new StringBuilder("value\r\n");
+    final List<Object[]> rows = Lists.newArrayList();
+    for (final Object value : values) {
+      rows.add(new Object[] { value });
+      expected.append(value).append("\r\n");
+    }
+    Assert.assertEquals(expected.toString(), export(new ResultSetExporter(ResultSetExporter.Format.CSV),
+        FakeResultSet.of(ImmutableList.of("value"), rows), values.length));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBufferTooSmall() {
+    new ResultSetExporter(ResultSetExporter.Format.CSV, 16);
+  }
+}
@@ -0,0 +1,19 @@
+package ca.cutterslade.utilities;
+
+import com.google.common.base.Function;
+
+/**
+ * A function class for {@link PropertiesResolverTest}, reversing the concatenation of its arguments.
+ */
+@PureFunction
+public class ReverseFunction implements Function<Iterable<String>, String> {
+
+  @Override
+  public String apply(final Iterable<String> input) {
+    final StringBuilder builder = new StringBuilder();
+    for (final String s : input) {
+      builder.append(s);
+    }
+    return builder.reverse().toString();
+  }
+}
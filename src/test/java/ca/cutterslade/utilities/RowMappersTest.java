@@ -0,0 +1,228 @@
+package ca.cutterslade.utilities;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+public class RowMappersTest {
+
+  private static final ImmutableList<String> LABELS = ImmutableList.of("ID", "FIRST_NAME", "ACTIVE", "IGNORED");
+
+  public static final class Person {
+
+    private final int id;
+
+    private final String name;
+
+    private final Double score;
+
+    public Person(final int id, final String name, final Double score) {
+      this.id = id;
+      this.name = name;
+      this.score = score;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof Person && id == ((Person) obj).id && Objects.equal(name, ((Person) obj).name)
+          && Objects.equal(score, ((Person) obj).score);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(id, name, score);
+    }
+  }
+
+  public static final class Bean {
+
+    private long id;
+
+    private String firstName;
+
+    private Boolean active;
+
+    public void setId(final long id) {
+      this.id = id;
+    }
+
+    public void setFirstName(final String firstName) {
+      this.firstName = firstName;
+    }
+
+    public void setActive(final Boolean active) {
+      this.active = active;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof Bean && id == ((Bean) obj).id && Objects.equal(firstName, ((Bean) obj).firstName)
+          && Objects.equal(active, ((Bean) obj).active);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(id, firstName, active);
+    }
+  }
+
+  public static final class Narrow {
+
+    private final Short small;
+
+    private final Byte tiny;
+
+    private final Float real;
+
+    public Narrow(final Short small, final Byte tiny, final Float real) {
+      this.small = small;
+      this.tiny = tiny;
+      this.real = real;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof Narrow && Objects.equal(small, ((Narrow) obj).small)
+          && Objects.equal(tiny, ((Narrow) obj).tiny) && Objects.equal(real, ((Narrow) obj).real);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(small, tiny, real);
+    }
+  }
+
+  public static final class Unsupported {
+
+    public void setName(final StringBuilder name) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public static final class Overloaded {
+
+    private long id;
+
+    public void setId(final long id) {
+      this.id = id;
+    }
+
+    public void setId(final List<?> ids) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public static final class Ambiguous {
+
+    public void setId(final long id) {
+      throw new UnsupportedOperationException();
+    }
+
+    public void setId(final String id) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public static class Holder<T> {
+
+    public void setValue(final T value) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  public static final class StringHolder extends Holder<String> {
+
+    private String value;
+
+    @Override
+    public void setValue(final String value) {
+      this.value = value;
+    }
+  }
+
+  private static List<Object[]> beanRows(final int count) {
+    final List<Object[]> rows = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      rows.add(new Object[] { Long.valueOf(i), "name" + i, 0 == i % 3 ? null : 0 == i % 2, "x" });
+    }
+    return rows;
+  }
+
+  private static Bean bean(final long id, final String firstName, final Boolean active) {
+    final Bean bean = new Bean();
+    bean.setId(id);
+    bean.setFirstName(firstName);
+    bean.setActive(active);
+    return bean;
+  }
+
+  @Test
+  public void testConstructorMapper() throws SQLException {
+    final ResultSet result = FakeResultSet.of(ImmutableList.of("id", "name", "score"),
+        ImmutableList.of(new Object[] { 1, "one", 1.5 }, new Object[] { null, null, null }));
+    final List<Person> people = Lists.newArrayList(new ResultSetTransformer<Person>(result,
+        RowMappers.forClass(result, Person.class)));
+    Assert.assertEquals(ImmutableList.of(new Person(1, "one", 1.5), new Person(0, null, null)), people);
+  }
+
+  @Test
+  public void testSetterMapper() throws SQLException {
+    final ResultSet result = FakeResultSet.of(LABELS, beanRows(4));
+    final List<Bean> beans = Lists.newArrayList(new ResultSetTransformer<Bean>(result,
+        RowMappers.forClass(result, Bean.class)));
+    Assert.assertEquals(ImmutableList.of(bean(0, "name0", null), bean(1, "name1", false), bean(2, "name2", true),
+        bean(3, "name3", null)), beans);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoConstructor() throws SQLException {
+    RowMappers.forClass(FakeResultSet.of(ImmutableList.of("a", "b"), ImmutableList.<Object[]> of()), Person.class);
+  }
+
+  @Test
+  public void testNarrowWrappers() throws SQLException {
+    final ResultSet result = FakeResultSet.of(ImmutableList.of("small", "tiny", "real"),
+        ImmutableList.of(new Object[] { 300, 7, 0.5 }, new Object[] { null, null, null }));
+    final List<Narrow> rows = Lists.newArrayList(new ResultSetTransformer<Narrow>(result,
+        RowMappers.forClass(result, Narrow.class)));
+    Assert.assertEquals(ImmutableList.of(new Narrow((short) 300, (byte) 7, 0.5f), new Narrow(null, null, null)), rows);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() throws SQLException {
+    RowMappers.forClass(FakeResultSet.of(ImmutableList.of("name"), ImmutableList.<Object[]> of()), Unsupported.class);
+  }
+
+  @Test
+  public void testOverloadedSetter() throws SQLException {
+    final ResultSet result = FakeResultSet.of(ImmutableList.of("id", "other"),
+        ImmutableList.of(new Object[] { 5L, null }));
+    final Function<ResultSet, Overloaded> mapper = RowMappers.forClass(result, Overloaded.class);
+    Assert.assertTrue(result.next());
+    Assert.assertEquals(5L, mapper.apply(result).id);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAmbiguousSetter() throws SQLException {
+    RowMappers.forClass(FakeResultSet.of(ImmutableList.of("id", "other"), ImmutableList.<Object[]> of()),
+        Ambiguous.class);
+  }
+
+  @Test
+  public void testBridgeSetterIgnored() throws SQLException {
+    final ResultSet result = FakeResultSet.of(ImmutableList.of("value", "other"),
+        ImmutableList.of(new Object[] { "text", null }));
+    final Function<ResultSet, StringHolder> mapper = RowMappers.forClass(result, StringHolder.class);
+    Assert.assertTrue(result.next());
+    Assert.assertEquals("text", mapper.apply(result).value);
+  }
+}